@@ -10,6 +10,7 @@ plugins {
 object Versions {
   const val awaitility = "4.0.3"
   const val jacoco = "0.8.6"
+  const val jmh = "1.26"
   const val junit = "5.7.0"
   const val wiremock = "2.27.2"
 }
@@ -54,6 +55,14 @@ tasks.withType(Test::class) {
   testLogging.exceptionFormat = TestExceptionFormat.FULL
 }
 
+// the JFR event needs the JFR API, which is missing in Java 8 builds before 8u262
+val hasFlightRecorder = try {
+  Class.forName("jdk.jfr.Event")
+  true
+} catch (e: ClassNotFoundException) {
+  false
+}
+
 sourceSets {
   getByName("test") {
     java {
@@ -63,7 +72,66 @@ sourceSets {
       setSrcDirs(setOf("test/data"))
     }
   }
+  create("jmh") {
+    java {
+      setSrcDirs(setOf("test/jmh"))
+    }
+    resources {
+      setSrcDirs(setOf("test/data"))
+    }
+    compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath + sourceSets["test"].output
+    runtimeClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath + sourceSets["test"].output
+  }
+  create("jfr") {
+    java {
+      setSrcDirs(if (hasFlightRecorder) setOf("src/jfr/java") else setOf<String>())
+    }
+    compileClasspath += sourceSets["main"].output + sourceSets["main"].compileClasspath
+  }
+  create("jfrTest") {
+    java {
+      setSrcDirs(if (hasFlightRecorder) setOf("test/jfr") else setOf<String>())
+    }
+    compileClasspath += sourceSets["main"].output + sourceSets["jfr"].output + sourceSets["test"].output + sourceSets["test"].compileClasspath
+    runtimeClasspath += sourceSets["main"].output + sourceSets["jfr"].output + sourceSets["test"].output + sourceSets["test"].runtimeClasspath
+  }
+}
+
+tasks.jar {
+  from(sourceSets["jfr"].output)
 }
+
+val jfrTest by tasks.registering(Test::class) {
+  description = "Runs the tests of the JFR event in test/jfr, if the JDK has the JFR API"
+  group = "verification"
+  testClassesDirs = sourceSets["jfrTest"].output.classesDirs
+  classpath = sourceSets["jfrTest"].runtimeClasspath
+}
+tasks.check {
+  dependsOn(jfrTest)
+}
+dependencies {
+  "jmhImplementation"("org.openjdk.jmh:jmh-core:${Versions.jmh}")
+  "jmhAnnotationProcessor"("org.openjdk.jmh:jmh-generator-annprocess:${Versions.jmh}")
+}
+
+tasks.register("jmh", JavaExec::class) {
+  description = "Runs the JMH benchmarks in test/jmh, e.g. ./gradlew jmh --args='ValidatorBenchmark.sortingTest -prof gc'"
+  group = "verification"
+  classpath = sourceSets["jmh"].runtimeClasspath
+  mainClass.set("org.openjdk.jmh.Main")
+  args("-prof", "gc")
+  systemProperty("java.awt.headless", "true")
+}
+
+tasks.register("batchValidate", JavaExec::class) {
+  description = "Validates the routes of OSM files without the JOSM GUI, e.g. ./gradlew batchValidate --args='--threads 4 extract.osm'"
+  group = "verification"
+  classpath = sourceSets["main"].runtimeClasspath + sourceSets["main"].compileClasspath
+  mainClass.set("org.openstreetmap.josm.plugins.pt_assistant.validation.BatchValidator")
+  systemProperty("java.awt.headless", "true")
+}
+
 tasks.withType(ProcessResources::class).getByName(sourceSets["main"].processResourcesTaskName) {
   from(projectDir) {
     include("images/**")
@@ -0,0 +1,77 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import java.util.function.BiFunction;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * The JFR event of an operation of the plugin. The duration of the event is the duration of the operation.
+ *
+ * This class is compiled in the {@code jfr} source set, which is only built if the JDK of the build has the
+ * JFR API. {@link PTFlightRecorder} creates the {@link Factory} by reflection if the JFR API is available at runtime.
+ */
+@Name("org.openstreetmap.josm.plugins.pt_assistant.Operation")
+@Label("PT Assistant Operation")
+@Description("A validator stage or a route editing action of the PT Assistant plugin")
+@Category({"JOSM", "PT Assistant"})
+@StackTrace(false)
+final class PTOperationEvent extends Event implements PTFlightRecorder.Span {
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Relation Id")
+    long relationId;
+
+    @Label("Member Count")
+    @Description("Number of members of the relation, or number of nodes of the way")
+    int memberCount;
+
+    @Label("Way Id")
+    long wayId;
+
+    /**
+     * Creates the events for {@link PTFlightRecorder#begin}
+     */
+    static final class Factory implements BiFunction<String, OsmPrimitive, PTFlightRecorder.Span> {
+        @Override
+        public PTFlightRecorder.Span apply(String operation, OsmPrimitive primitive) {
+            return begin(operation, primitive);
+        }
+    }
+
+    static PTFlightRecorder.Span begin(String operation, OsmPrimitive primitive) {
+        PTOperationEvent event = new PTOperationEvent();
+        if (!event.isEnabled()) {
+            return PTFlightRecorder.NONE;
+        }
+        event.operation = operation;
+        if (primitive instanceof Relation) {
+            event.relationId = primitive.getUniqueId();
+            event.memberCount = ((Relation) primitive).getMembersCount();
+        } else if (primitive instanceof Way) {
+            event.wayId = primitive.getUniqueId();
+            event.memberCount = ((Way) primitive).getNodesCount();
+        }
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void close() {
+        end();
+        if (shouldCommit()) {
+            commit();
+        }
+    }
+}
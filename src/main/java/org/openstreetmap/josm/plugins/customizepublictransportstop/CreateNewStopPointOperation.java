@@ -108,8 +108,8 @@ public class CreateNewStopPointOperation extends StopAreaOperationBase {
         while (++distanceIndex < distances.length && nearestNode == null) {
             List<Node> nodes = dist_nodes.get(distances[distanceIndex]);
             for (Node node : nodes) {
-                for (Way way : getCurrentDataSet().getWays()) {
-                    if (way.getNodes().contains(node) && testWay(way, stopArea)) {
+                for (Way way : node.getParentWays()) {
+                    if (testWay(way, stopArea)) {
                         nearestNode = node;
                         return new AbstractMap.SimpleEntry<>(distances[distanceIndex], nearestNode);
                     }
@@ -39,6 +39,7 @@ import org.openstreetmap.josm.plugins.pt_assistant.actions.RoutingAction;
 import org.openstreetmap.josm.plugins.pt_assistant.actions.SortPTRouteMembersAction;
 import org.openstreetmap.josm.plugins.pt_assistant.actions.SortPTRouteMembersMenuBar;
 import org.openstreetmap.josm.plugins.pt_assistant.actions.SplitRoundaboutAction;
+import org.openstreetmap.josm.plugins.pt_assistant.actions.ValidationStatisticsAction;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteSegment;
 import org.openstreetmap.josm.plugins.pt_assistant.gui.PTAssistantLayerManager;
 import org.openstreetmap.josm.plugins.pt_assistant.validation.BicycleFootRouteValidatorTest;
@@ -148,6 +149,7 @@ public class PTAssistantPlugin extends Plugin {
         MainMenu.add(menu, new SortPTRouteMembersMenuBar());
         menu.addSeparator();
         MainMenu.add(menu, new PTWizardAction());
+        MainMenu.add(menu, new ValidationStatisticsAction());
         menu.addSeparator();
         MainMenu.add(menu, new PublicTransportLayer.AddLayerAction());
         MainMenu.add(menu, new DistanceBetweenStops());
@@ -55,6 +55,7 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.MapView;
 import org.openstreetmap.josm.gui.layer.AbstractMapViewPaintable;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.NodeUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTFlightRecorder;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.PrimitiveUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.WayUtils;
 import org.openstreetmap.josm.tools.CheckParameterUtil;
@@ -899,13 +900,18 @@ public class DoubleSplitAction extends MapMode implements KeyListener {
             toggleSaveState(); // necessary since #showDialog() does not handle it due to the non-modal dialog
 
             if (getValue() == 1) {
-                if (this.type == TYPE_NODES_ON_ADJACENT_WAYS) {
-                    addKeysOnBothWays(this.commonNode, this.affected, this.previousAffectedWay, this.commandList, keys,
-                            values);
-                } else if (this.type == TYPE_NODES_ON_SAME_WAY) {
-                    addKeys(this.affected, this.commandList, keys, values);
-                } else if (this.type == TYPE_NODES_ARE_ENDS_OF_SAME_WAY) {
-                    addKeysWhenStartEndPoint(this.affected, keys, values);
+                PTFlightRecorder.Span span = PTFlightRecorder.begin("DoubleSplitAction.split", this.affected);
+                try {
+                    if (this.type == TYPE_NODES_ON_ADJACENT_WAYS) {
+                        addKeysOnBothWays(this.commonNode, this.affected, this.previousAffectedWay, this.commandList,
+                                keys, values);
+                    } else if (this.type == TYPE_NODES_ON_SAME_WAY) {
+                        addKeys(this.affected, this.commandList, keys, values);
+                    } else if (this.type == TYPE_NODES_ARE_ENDS_OF_SAME_WAY) {
+                        addKeysWhenStartEndPoint(this.affected, keys, values);
+                    }
+                } finally {
+                    span.close();
                 }
 
             } else if (getValue() != 3) {
@@ -51,6 +51,7 @@ import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.DialogUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.GeometryUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTFlightRecorder;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayAssigner;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopUtils;
@@ -358,6 +359,15 @@ public class SortPTRouteMembersAction extends AbstractRelationEditorAction {
      * @param rel route to be sorted
      */
     public static void sortPTRouteMembers(Relation rel) {
+        PTFlightRecorder.Span span = PTFlightRecorder.begin("SortPTRouteMembersAction.sortPTRouteMembers", rel);
+        try {
+            sortMembers(rel);
+        } finally {
+            span.close();
+        }
+    }
+
+    private static void sortMembers(Relation rel) {
         if (!RouteUtils.isVersionTwoPTRoute(rel)) {
             return;
         }
@@ -431,18 +441,12 @@ public class SortPTRouteMembersAction extends AbstractRelationEditorAction {
 
         Map<Way, List<PTStop>> wayStop = new HashMap<>();
 
-        ptstops.forEach(stop -> {
-            Way way = assigner.get(stop);
-            if (way == null) {
-                addStopToRelation(rel, stop);
-            }
-            if (!wayStop.containsKey(way))
-                wayStop.put(way, new ArrayList<>());
-            wayStop.get(way).add(stop);
-        });
+        List<PTStop> allStops = new ArrayList<>(ptstops);
+        allStops.addAll(unnamed);
+        Map<PTStop, Way> stopToWay = assigner.get(allStops);
 
-        unnamed.forEach(stop -> {
-            Way way = assigner.get(stop);
+        allStops.forEach(stop -> {
+            Way way = stopToWay.get(stop);
             if (way == null) {
                 addStopToRelation(rel, stop);
             }
@@ -41,6 +41,7 @@ import org.openstreetmap.josm.gui.dialogs.relation.GenericRelationEditor;
 import org.openstreetmap.josm.gui.dialogs.relation.RelationDialogManager;
 import org.openstreetmap.josm.gui.dialogs.relation.RelationEditor;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTFlightRecorder;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.tools.Logging;
@@ -95,6 +96,15 @@ public class SplitRoundaboutAction extends JosmAction {
     }
 
     private void continueAfterDownload(Way roundabout) {
+        PTFlightRecorder.Span span = PTFlightRecorder.begin("SplitRoundaboutAction.splitRoundabout", roundabout);
+        try {
+            splitRoundabout(roundabout);
+        } finally {
+            span.close();
+        }
+    }
+
+    private void splitRoundabout(Way roundabout) {
         // make the roundabout round, if requested
         if (PTProperties.ROUNDABOUT_SPLITTER_ALIGN_ALWAYS.get()
                 || JOptionPane.YES_OPTION == JOptionPane.showOptionDialog(MainApplication.getMainFrame(),
@@ -0,0 +1,56 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.actions;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.event.ActionEvent;
+
+import javax.swing.JOptionPane;
+import javax.swing.JScrollPane;
+import javax.swing.JTextArea;
+
+import org.openstreetmap.josm.actions.JosmAction;
+import org.openstreetmap.josm.gui.ExtendedDialog;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.plugins.pt_assistant.validation.ValidationStatistics;
+
+/**
+ * Shows the time needed by the stages of the last validation and the slowest routes,
+ * see {@link ValidationStatistics}
+ */
+public class ValidationStatisticsAction extends JosmAction {
+
+    /**
+     * Creates a new ValidationStatisticsAction
+     */
+    public ValidationStatisticsAction() {
+        super(tr("PT validation statistics"), "dialogs/validator", tr("Show the time needed by the last PT Assistant validation"),
+                null, false);
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        ValidationStatistics statistics = ValidationStatistics.getLastRun();
+        if (statistics == null) {
+            if (JOptionPane.YES_OPTION == JOptionPane.showConfirmDialog(MainApplication.getMainFrame(),
+                    tr("No statistics have been collected yet. Do you want to collect statistics in the next validations?"),
+                    tr("PT validation statistics"), JOptionPane.YES_NO_OPTION)) {
+                PTProperties.VALIDATION_STATISTICS.put(true);
+            }
+            return;
+        }
+
+        JTextArea report = new JTextArea(statistics.getReport(PTProperties.VALIDATION_STATISTICS_SLOWEST_ROUTES.get()));
+        report.setFont(new Font(Font.MONOSPACED, Font.PLAIN, report.getFont().getSize()));
+        report.setEditable(false);
+        JScrollPane scrollPane = new JScrollPane(report);
+        scrollPane.setPreferredSize(new Dimension(900, 400));
+        new ExtendedDialog(MainApplication.getMainFrame(), tr("PT validation statistics"), tr("Close"))
+            .setContent(scrollPane, false)
+            .setButtonIcons("ok")
+            .showDialog();
+    }
+}
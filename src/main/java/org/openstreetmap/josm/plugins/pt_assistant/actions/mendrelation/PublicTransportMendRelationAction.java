@@ -76,6 +76,7 @@ import org.openstreetmap.josm.plugins.pt_assistant.PTAssistantPluginPreferences;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.BoundsUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.ColorPalette;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.NotificationUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTFlightRecorder;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.WayUtils;
 import org.openstreetmap.josm.tools.GBC;
@@ -285,6 +286,15 @@ public class PublicTransportMendRelationAction extends AbstractMendRelation {
     }
 
     void callNextWay(int i) {
+        PTFlightRecorder.Span span = PTFlightRecorder.begin("PublicTransportMendRelationAction.callNextWay", relation);
+        try {
+            findNextWay(i);
+        } finally {
+            span.close();
+        }
+    }
+
+    private void findNextWay(int i) {
         Logging.debug("callNextWay(" + i + ")");
         downloadCounter++;
         if (i < members.size() && members.get(i).isWay()) {
@@ -423,8 +433,13 @@ public class PublicTransportMendRelationAction extends AbstractMendRelation {
     }
 
     void deleteExtraWays() {
-        int[] ints = extraWaysToBeDeleted.stream().mapToInt(Integer::intValue).toArray();
-        memberTableModel.remove(ints);
+        PTFlightRecorder.Span span = PTFlightRecorder.begin("PublicTransportMendRelationAction.deleteExtraWays", relation);
+        try {
+            int[] ints = extraWaysToBeDeleted.stream().mapToInt(Integer::intValue).toArray();
+            memberTableModel.remove(ints);
+        } finally {
+            span.close();
+        }
         setEnable = true;
         setEnabled(true);
         halt = false;
@@ -492,11 +507,16 @@ public class PublicTransportMendRelationAction extends AbstractMendRelation {
     }
 
     void sortBelow(List<RelationMember> members) {
-        RelationSorter relationSorter = new RelationSorter();
-        final List<RelationMember> subList = members.subList(Math.max(0, 0), members.size());
-        final List<RelationMember> sorted = relationSorter.sortMembers(subList);
-        subList.clear();
-        subList.addAll(sorted);
+        PTFlightRecorder.Span span = PTFlightRecorder.begin("PublicTransportMendRelationAction.sortBelow", relation);
+        try {
+            RelationSorter relationSorter = new RelationSorter();
+            final List<RelationMember> subList = members.subList(Math.max(0, 0), members.size());
+            final List<RelationMember> sorted = relationSorter.sortMembers(subList);
+            subList.clear();
+            subList.addAll(sorted);
+        } finally {
+            span.close();
+        }
         memberTableModel.fireTableDataChanged();
     }
 
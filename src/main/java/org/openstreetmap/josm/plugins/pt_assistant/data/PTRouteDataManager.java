@@ -2,9 +2,12 @@
 package org.openstreetmap.josm.plugins.pt_assistant.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
@@ -42,6 +45,15 @@ public class PTRouteDataManager {
 
     private final HashMap<String, String> tags = new HashMap<>(30);
 
+    /* The positions of the PTWays in ptWays, see getNextPTWay() */
+    private final Map<PTWay, Integer> ptWayPositions = new IdentityHashMap<>();
+
+    /* The ascending positions of the PTWays containing a way, see getPTWaysBetween() */
+    private final Map<Way, int[]> wayPositions = new HashMap<>();
+
+    /* The stops by the ids of their stop positions and platforms, see getPTStop() */
+    private final Map<Long, PTStop> stopsById = new HashMap<>();
+
     public PTRouteDataManager(Relation relation) {
 
         // It is assumed that the relation is a route. Build in a check here
@@ -110,6 +122,33 @@ public class PTRouteDataManager {
                 failedMembers.add(member);
             }
         }
+
+        buildIndexes();
+    }
+
+    private void buildIndexes() {
+        Map<Way, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < ptWays.size(); i++) {
+            PTWay ptway = ptWays.get(i);
+            ptWayPositions.putIfAbsent(ptway, i);
+            for (Way way : ptway.getWays()) {
+                List<Integer> list = positions.computeIfAbsent(way, it -> new ArrayList<>(1));
+                if (list.isEmpty() || list.get(list.size() - 1) != i) {
+                    list.add(i);
+                }
+            }
+        }
+        positions.forEach((way, list) -> wayPositions.put(way, list.stream().mapToInt(Integer::intValue).toArray()));
+
+        // the first matching stop wins, as in the order of the route:
+        for (PTStop stop : ptStops) {
+            if (stop.getStopPosition() != null) {
+                stopsById.putIfAbsent(stop.getStopPosition().getId(), stop);
+            }
+            if (stop.getPlatform() != null) {
+                stopsById.putIfAbsent(stop.getPlatform().getId(), stop);
+            }
+        }
     }
 
     public void set(String key, String value) {
@@ -215,17 +254,7 @@ public class PTRouteDataManager {
      * @return a PTStop that matches the given id. Returns null if not found
      */
     public PTStop getPTStop(long id) {
-        for (PTStop stop : ptStops) {
-            if (stop.getStopPosition() != null && stop.getStopPosition().getId() == id) {
-                return stop;
-            }
-
-            if (stop.getPlatform() != null && stop.getPlatform().getId() == id) {
-                return stop;
-            }
-        }
-
-        return null;
+        return stopsById.get(id);
     }
 
     /**
@@ -237,19 +266,17 @@ public class PTRouteDataManager {
      * the existing route member sorting
      */
     public PTWay getNextPTWay(PTWay ptway) {
-
-        for (int i = 0; i < ptWays.size() - 1; i++) {
-            if (ptWays.get(i) == ptway) {
-                return ptWays.get(i + 1);
-            }
+        Integer position = ptWayPositions.get(ptway);
+        if (position == null || position >= ptWays.size() - 1) {
+            return null;
         }
-        return null;
-
+        return ptWays.get(position + 1);
     }
 
     /**
      * Returns a sequence of PTWays that are between the start way and the end
-     * way. The resulting list includes the start and end PTWays.
+     * way. The resulting list includes the start and end PTWays. If the ways
+     * occur several times in the route, the shortest sequence is returned.
      *
      * @param start start way
      * @param end end way
@@ -257,43 +284,24 @@ public class PTRouteDataManager {
      */
     public List<PTWay> getPTWaysBetween(Way start, Way end) {
 
-        List<Integer> potentialStartIndices = new ArrayList<>();
-        List<Integer> potentialEndIndices = new ArrayList<>();
-
-        for (int i = 0; i < ptWays.size(); i++) {
-            if (ptWays.get(i).getWays().contains(start)) {
-                potentialStartIndices.add(i);
-            }
-            if (ptWays.get(i).getWays().contains(end)) {
-                potentialEndIndices.add(i);
-            }
-        }
-
-        List<int[]> pairList = new ArrayList<>();
-        for (Integer potentialStartIndex : potentialStartIndices) {
-            for (Integer potentialEndIndex : potentialEndIndices) {
-                if (potentialStartIndex <= potentialEndIndex) {
-                    int[] pair = {potentialStartIndex, potentialEndIndex};
-                    pairList.add(pair);
-                }
-            }
-        }
+        int[] potentialStartIndices = wayPositions.getOrDefault(start, new int[0]);
+        int[] potentialEndIndices = wayPositions.getOrDefault(end, new int[0]);
 
+        // for each start index, the nearest end index is the first one that is not smaller:
         int minDifference = Integer.MAX_VALUE;
         int[] mostSuitablePair = {0, 0};
-        for (int[] pair : pairList) {
-            int diff = pair[1] - pair[0];
-            if (diff < minDifference) {
-                minDifference = diff;
-                mostSuitablePair = pair;
+        for (int potentialStartIndex : potentialStartIndices) {
+            int i = Arrays.binarySearch(potentialEndIndices, potentialStartIndex);
+            if (i < 0) {
+                i = -i - 1;
+            }
+            if (i < potentialEndIndices.length && potentialEndIndices[i] - potentialStartIndex < minDifference) {
+                minDifference = potentialEndIndices[i] - potentialStartIndex;
+                mostSuitablePair = new int[] {potentialStartIndex, potentialEndIndices[i]};
             }
         }
 
-        List<PTWay> result = new ArrayList<>();
-        for (int i = mostSuitablePair[0]; i <= mostSuitablePair[1]; i++) {
-            result.add(ptWays.get(i));
-        }
-        return result;
+        return new ArrayList<>(ptWays.subList(mostSuitablePair[0], mostSuitablePair[1] + 1));
     }
 
     /**
@@ -2,7 +2,13 @@
 package org.openstreetmap.josm.plugins.pt_assistant.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
@@ -30,6 +36,18 @@ public class PTRouteSegment {
     /* fix variants available for this route segment */
     private final List<List<PTWay>> fixVariants;
 
+    /* way sequences of the fix variants, used to ignore duplicate fix variants */
+    private final Set<WaySequence> fixVariantSequences = new HashSet<>();
+
+    /* way sequence of the ptways, computed on first use */
+    private volatile WaySequence waySequence;
+
+    /* finds the fix variants on demand, null if there is nothing left to compute */
+    private Supplier<List<List<PTWay>>> fixVariantFinder;
+
+    /* the computation of the fix variants, null if it has not been requested yet */
+    private CompletableFuture<List<List<PTWay>>> fixVariantComputation;
+
     private final Relation relation;
 
     /**
@@ -60,9 +78,37 @@ public class PTRouteSegment {
      * Sets the PTWays of this route segment to the given list
      * @param ptwayList list of ways
      */
-    public void setPTWays(List<PTWay> ptwayList) {
+    public synchronized void setPTWays(List<PTWay> ptwayList) {
         this.ptways = ptwayList;
+        this.waySequence = null;
         this.fixVariants.clear();
+        this.fixVariantSequences.clear();
+    }
+
+    /**
+     * Returns the ids of the ways of this route segment, in the order of the route
+     * @return a copy of the ids of the ways of this route segment
+     */
+    public long[] getWayIds() {
+        return getWaySequence().ids.clone();
+    }
+
+    /**
+     * Returns a hash of the sequence of the ways of this route segment. Route segments
+     * with the same ways in the same order have the same hash.
+     * @return the hash of the sequence of the ways of this route segment
+     */
+    public long getWaySequenceHash() {
+        return getWaySequence().hash;
+    }
+
+    private WaySequence getWaySequence() {
+        WaySequence sequence = waySequence;
+        if (sequence == null) {
+            sequence = new WaySequence(ptways);
+            waySequence = sequence;
+        }
+        return sequence;
     }
 
     /**
@@ -134,39 +180,63 @@ public class PTRouteSegment {
      */
 
     public synchronized void addFixVariant(List<PTWay> list) {
-        List<Way> otherWays = new ArrayList<>();
-        for (PTWay ptway : list) {
-            otherWays.addAll(ptway.getWays());
+        if (fixVariantSequences.add(new WaySequence(list))) {
+            this.fixVariants.add(list);
         }
+    }
 
-        for (List<PTWay> fixVariant : this.fixVariants) {
-            List<Way> thisWays = new ArrayList<>();
-            for (PTWay ptway : fixVariant) {
-                thisWays.addAll(ptway.getWays());
-            }
-            boolean listsEqual = (thisWays.size() == otherWays.size());
-            if (listsEqual) {
-                for (int i = 0; i < thisWays.size(); i++) {
-                    if (thisWays.get(i).getUniqueId() != otherWays.get(i).getUniqueId()) {
-                        listsEqual = false;
-                        break;
-                    }
-                }
-            }
-            if (listsEqual) {
-                return;
-            }
-        }
+    /**
+     * Returns the fix variants stored for this route segment
+     * @return a copy of the fix variants stored for this route segment
+     */
+    public synchronized List<List<PTWay>> getFixVariants() {
+        return new ArrayList<>(this.fixVariants);
+    }
 
-        this.fixVariants.add(list);
+    /**
+     * Sets the finder of the fix variants of this route segment. The finder is not run
+     * before the fix variants are requested by {@link #computeFixVariants(Executor)}.
+     *
+     * @param finder finds the fix variants, the best ranked first
+     */
+    public synchronized void setFixVariantFinder(Supplier<List<List<PTWay>>> finder) {
+        this.fixVariantFinder = finder;
+        this.fixVariantComputation = null;
     }
 
     /**
-     * Returns the fix variants stored for this route segment
-     * @return the fix variants stored for this route segment
+     * Checks if the fix variants of this route segment are known, i.e. if there is no finder
+     * or its computation has completed
+     *
+     * @return {@code true} if {@link #getFixVariants()} returns all fix variants
      */
-    public List<List<PTWay>> getFixVariants() {
-        return this.fixVariants;
+    public synchronized boolean areFixVariantsComputed() {
+        return fixVariantFinder == null && (fixVariantComputation == null || fixVariantComputation.isDone());
+    }
+
+    /**
+     * Runs the finder of the fix variants on the given executor and adds the found variants to this
+     * route segment. The computation is only started once, later calls return the same result.
+     *
+     * @param executor the executor that runs the finder
+     * @return the fix variants of this route segment, once they are computed
+     */
+    public synchronized CompletableFuture<List<List<PTWay>>> computeFixVariants(Executor executor) {
+        if (fixVariantComputation == null) {
+            if (fixVariantFinder == null) {
+                fixVariantComputation = CompletableFuture.completedFuture(getFixVariants());
+            } else {
+                Supplier<List<List<PTWay>>> finder = fixVariantFinder;
+                fixVariantFinder = null;
+                fixVariantComputation = CompletableFuture.supplyAsync(() -> {
+                    for (List<PTWay> fixVariant : finder.get()) {
+                        addFixVariant(fixVariant);
+                    }
+                    return getFixVariants();
+                }, executor);
+            }
+        }
+        return fixVariantComputation;
     }
 
     /**
@@ -185,27 +255,50 @@ public class PTRouteSegment {
      */
 
     public boolean equalsRouteSegment(PTRouteSegment other) {
+        return getWaySequence().equals(other.getWaySequence());
+    }
 
-        List<Way> thisWays = new ArrayList<>();
-        for (PTWay ptway : this.ptways) {
-            thisWays.addAll(ptway.getWays());
-        }
-        List<Way> otherWays = new ArrayList<>();
-        for (PTWay ptway : other.getPTWays()) {
-            otherWays.addAll(ptway.getWays());
-        }
+    /**
+     * The ids of a sequence of ways and their rolling hash
+     */
+    private static final class WaySequence {
+        private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+        private final long[] ids;
+        private final long hash;
 
-        if (thisWays.size() != otherWays.size()) {
-            return false;
+        WaySequence(List<PTWay> ptways) {
+            int size = 0;
+            for (PTWay ptway : ptways) {
+                size += ptway.getWays().size();
+            }
+            ids = new long[size];
+            long h = 0;
+            int i = 0;
+            for (PTWay ptway : ptways) {
+                for (Way way : ptway.getWays()) {
+                    ids[i++] = way.getUniqueId();
+                    h = h * MULTIPLIER + way.getUniqueId();
+                }
+            }
+            hash = h;
         }
 
-        for (int i = 0; i < thisWays.size(); i++) {
-            if (thisWays.get(i).getUniqueId() != otherWays.get(i).getUniqueId()) {
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof WaySequence)) {
                 return false;
             }
+            WaySequence other = (WaySequence) obj;
+            return hash == other.hash && Arrays.equals(ids, other.ids);
         }
 
-        return true;
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
     }
-
 }
@@ -2,8 +2,7 @@
 package org.openstreetmap.josm.plugins.pt_assistant.data;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -22,7 +21,7 @@ import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayAssigner;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopUtils;
-import org.openstreetmap.josm.plugins.pt_assistant.utils.WayUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.WayNodeIndex;
 
 /**
  * Model a stop with one or two elements (platform and/or stop_position)
@@ -183,12 +182,7 @@ public class PTStop extends RelationMember implements ILatLon {
         double by = platformCenter.getY() + 0.001;
         BBox platformBBox = new BBox(ax, ay, bx, by);
 
-        Collection<Node> allNodes = platform.getDataSet().getNodes();
-        for (Node currentNode : allNodes) {
-            if (checkNodeBelongstoWayorNot(platformBBox, currentNode)) {
-                potentialStopPositions.add(currentNode);
-            }
-        }
+        potentialStopPositions.addAll(WayNodeIndex.getIndex(platform.getDataSet()).searchWayNodes(platformBBox));
         return potentialStopPositions;
     }
 
@@ -249,65 +243,14 @@ public class PTStop extends RelationMember implements ILatLon {
             }
         }
 
-        double searchRadius = 0.001;
-
-        while (searchRadius < 0.005) {
-
-            Way foundWay = this.findNearestWayInRadius(stop.getPlatform(), searchRadius, stop);
-
-            if (foundWay != null) {
-                this.serveWay = foundWay;
-                return foundWay;
-            }
-
-            foundWay = this.findNearestWayInRadius(stop.getStopPosition(), searchRadius, stop);
-
-            if (foundWay != null) {
-                this.serveWay = foundWay;
-                return foundWay;
-            }
-
-            searchRadius = searchRadius + 0.001;
+        Way foundWay = StopToWayAssigner.findNearestWayInGrowingRadius(
+            Arrays.asList(stop.getPlatform(), stop.getStopPosition()),
+            node -> Stream.of(findWayForNode(node, stop)).filter(Objects::nonNull)
+        );
+        if (foundWay != null) {
+            this.serveWay = foundWay;
         }
-        return null;
-    }
-
-    /**
-     * Finds the nearest Way in particular radius around the stop
-     *
-     * @return most probable way which will be served by a stop
-     */
-    private Way findNearestWayInRadius(OsmPrimitive platform, double searchRadius, PTStop stop) {
-        if (platform == null) {
-            return null;
-        }
-        StopToWayAssigner assigner = new StopToWayAssigner();
-        LatLon platformCenter = platform.getBBox().getCenter();
-        double ax = platformCenter.getX() - searchRadius;
-        double bx = platformCenter.getX() + searchRadius;
-        double ay = platformCenter.getY() - searchRadius;
-        double by = platformCenter.getY() + searchRadius;
-        BBox platformBBox = new BBox(ax, ay, bx, by);
-
-        Set<Way> potentialWays = new HashSet<>();
-
-        Collection<Node> allNodes = platform.getDataSet().getNodes();
-        for (Node currentNode : allNodes) {
-            if (platformBBox.bounds(currentNode.getBBox())) {
-                Way referredWay = findWayForNode(currentNode, stop);
-                if (referredWay != null) {
-                    potentialWays.add(referredWay);
-                }
-            }
-        }
-        Node platformNode;
-        if (platform.getType().equals(OsmPrimitiveType.NODE)) {
-            platformNode = (Node) platform;
-        } else {
-            platformNode = new Node(platform.getBBox().getCenter());
-        }
-
-        return potentialWays.stream().collect(WayUtils.nearestToPointCollector(platformNode)).orElse(null);
+        return foundWay;
     }
 
     /**
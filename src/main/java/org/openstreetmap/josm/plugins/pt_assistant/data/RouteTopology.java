@@ -0,0 +1,356 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+
+/**
+ * Immutable snapshot of the ways of a route relation and how they are connected, built once per
+ * route and shared by the checkers, so that they do not need to copy the member and node lists
+ * of the route again and again.
+ *
+ * The ways are the public transport ways of the route in member order, the ways of nested
+ * relations (see {@link PTWay}) are included in their order. Each way is identified by its index
+ * in this order. All nodes of the ways are indexed, so that the ways of the route containing a
+ * node, and the number of {@link PTWay}s ending at it, can be looked up without iterating over the
+ * ways. Nodes and ways are identified by their unique ids ({@link Node#getUniqueId()}), which are
+ * kept in primitive arrays.
+ *
+ * The topology does not follow changes of the route, a new one has to be built after a change.
+ */
+public final class RouteTopology {
+
+    /* the traversal direction of a way, determined from the connection to its neighbors */
+    public static final byte FORWARD = 1;
+    public static final byte BACKWARD = -1;
+    public static final byte NONE = 0;
+
+    /* node id of the end nodes of ways without nodes */
+    public static final long NO_NODE = 0;
+
+    private final Way[] ways;
+    private final long[] wayIds;
+    private final int[] memberIndices;
+    private final int[] ptWayIndices;
+    private final boolean[] nested;
+    private final long[] firstNodeIds;
+    private final long[] lastNodeIds;
+    private final byte[] directions;
+
+    /* the ids of all nodes of the ways in ascending order */
+    private final long[] nodeIds;
+    /* the ways containing the node nodeIds[i] are nodeWays[nodeOffsets[i]] to nodeWays[nodeOffsets[i + 1] - 1] */
+    private final int[] nodeOffsets;
+    private final int[] nodeWays;
+    /* the number of ways of PTWays containing the node nodeIds[i], and having it as first or last node */
+    private final int[] ptWayCounts;
+    private final int[] endDegrees;
+
+    private RouteTopology(Relation relation) {
+        int wayCount = 0;
+        for (int i = 0; i < relation.getMembersCount(); i++) {
+            RelationMember member = relation.getMember(i);
+            if (RouteUtils.isPTWay(member)) {
+                wayCount += member.isWay() ? 1 : member.getRelation().getMembersCount();
+            }
+        }
+
+        ways = new Way[wayCount];
+        wayIds = new long[wayCount];
+        memberIndices = new int[wayCount];
+        ptWayIndices = new int[wayCount];
+        nested = new boolean[wayCount];
+        firstNodeIds = new long[wayCount];
+        lastNodeIds = new long[wayCount];
+        directions = new byte[wayCount];
+
+        int index = 0;
+        int ptWayCount = 0;
+        for (int i = 0; i < relation.getMembersCount(); i++) {
+            RelationMember member = relation.getMember(i);
+            if (!RouteUtils.isPTWay(member)) {
+                continue;
+            }
+            // as in the PTRouteDataManager, members which can be stops are no PTWays:
+            int ptWayIndex = PTStop.isPTStop(member) ? -1 : ptWayCount++;
+            if (member.isWay()) {
+                setWay(index++, member.getWay(), i, ptWayIndex, false);
+            } else {
+                Relation nestedRelation = member.getRelation();
+                for (int j = 0; j < nestedRelation.getMembersCount(); j++) {
+                    setWay(index++, nestedRelation.getMember(j).getWay(), i, ptWayIndex, true);
+                }
+            }
+        }
+        for (int i = 0; i < wayCount; i++) {
+            directions[i] = findDirection(i);
+        }
+
+        // the ids of all way nodes, sorted and without duplicates:
+        int slotCount = 0;
+        for (Way way : ways) {
+            slotCount += way.getNodesCount();
+        }
+        long[] slots = new long[slotCount];
+        int slot = 0;
+        for (Way way : ways) {
+            for (int j = 0; j < way.getNodesCount(); j++) {
+                slots[slot++] = way.getNode(j).getUniqueId();
+            }
+        }
+        Arrays.sort(slots);
+        int nodeCount = 0;
+        for (int i = 0; i < slotCount; i++) {
+            if (i == 0 || slots[i] != slots[i - 1]) {
+                slots[nodeCount++] = slots[i];
+            }
+        }
+        nodeIds = Arrays.copyOf(slots, nodeCount);
+
+        // the ways of each node, each way only once even if it contains the node several times:
+        int[] lastWay = new int[nodeCount];
+        Arrays.fill(lastWay, -1);
+        int[] counts = new int[nodeCount + 1];
+        for (int i = 0; i < wayCount; i++) {
+            for (int j = 0; j < ways[i].getNodesCount(); j++) {
+                int node = Arrays.binarySearch(nodeIds, ways[i].getNode(j).getUniqueId());
+                if (lastWay[node] != i) {
+                    lastWay[node] = i;
+                    counts[node + 1]++;
+                }
+            }
+        }
+        nodeOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++) {
+            nodeOffsets[i + 1] = nodeOffsets[i] + counts[i + 1];
+        }
+        nodeWays = new int[nodeOffsets[nodeCount]];
+        int[] next = Arrays.copyOf(nodeOffsets, nodeCount);
+        Arrays.fill(lastWay, -1);
+        for (int i = 0; i < wayCount; i++) {
+            for (int j = 0; j < ways[i].getNodesCount(); j++) {
+                int node = Arrays.binarySearch(nodeIds, ways[i].getNode(j).getUniqueId());
+                if (lastWay[node] != i) {
+                    lastWay[node] = i;
+                    nodeWays[next[node]++] = i;
+                }
+            }
+        }
+
+        ptWayCounts = new int[nodeCount];
+        endDegrees = new int[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            for (int i = nodeOffsets[node]; i < nodeOffsets[node + 1]; i++) {
+                int way = nodeWays[i];
+                if (ptWayIndices[way] >= 0) {
+                    ptWayCounts[node]++;
+                    if (isEndNode(way, nodeIds[node])) {
+                        endDegrees[node]++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Builds the topology of the given route
+     *
+     * @param relation route relation
+     * @return the topology of the current ways of the route
+     */
+    public static RouteTopology of(Relation relation) {
+        return new RouteTopology(relation);
+    }
+
+    private void setWay(int index, Way way, int memberIndex, int ptWayIndex, boolean isNested) {
+        ways[index] = way;
+        wayIds[index] = way.getUniqueId();
+        memberIndices[index] = memberIndex;
+        ptWayIndices[index] = ptWayIndex;
+        nested[index] = isNested;
+        firstNodeIds[index] = way.getNodesCount() > 0 ? way.firstNode().getUniqueId() : NO_NODE;
+        lastNodeIds[index] = way.getNodesCount() > 0 ? way.lastNode().getUniqueId() : NO_NODE;
+    }
+
+    /**
+     * A way is traversed forward if its first node touches the previous way or its last node
+     * touches the next way. Closed ways and ways not touching their neighbors have no direction.
+     */
+    private byte findDirection(int index) {
+        long first = firstNodeIds[index];
+        long last = lastNodeIds[index];
+        if (first == NO_NODE || first == last) {
+            return NONE;
+        }
+        if (index > 0 && isEndNode(index - 1, first)) {
+            return FORWARD;
+        }
+        if (index > 0 && isEndNode(index - 1, last)) {
+            return BACKWARD;
+        }
+        if (index < ways.length - 1 && isEndNode(index + 1, last)) {
+            return FORWARD;
+        }
+        if (index < ways.length - 1 && isEndNode(index + 1, first)) {
+            return BACKWARD;
+        }
+        return NONE;
+    }
+
+    private boolean isEndNode(int index, long nodeId) {
+        return firstNodeIds[index] == nodeId || lastNodeIds[index] == nodeId;
+    }
+
+    /**
+     * Returns the number of ways of the route
+     *
+     * @return the number of ways, including the ways of nested relations
+     */
+    public int getWayCount() {
+        return ways.length;
+    }
+
+    /**
+     * Returns the ways of the route
+     *
+     * @return an unmodifiable list of the ways in the order of the route
+     */
+    public List<Way> getWays() {
+        return Collections.unmodifiableList(Arrays.asList(ways));
+    }
+
+    /**
+     * Returns the way with the given index
+     *
+     * @param index index of the way
+     * @return the way
+     */
+    public Way getWay(int index) {
+        return ways[index];
+    }
+
+    /**
+     * Returns the unique id of the way with the given index
+     *
+     * @param index index of the way
+     * @return the unique id of the way
+     */
+    public long getWayId(int index) {
+        return wayIds[index];
+    }
+
+    /**
+     * Returns the index of the route member of the way with the given index
+     *
+     * @param index index of the way
+     * @return the index of the member in the route, for ways of nested relations the index of the nested relation
+     */
+    public int getMemberIndex(int index) {
+        return memberIndices[index];
+    }
+
+    /**
+     * Returns the index of the PTWay of the way with the given index, i.e. its index in
+     * {@link PTRouteDataManager#getPTWays()}
+     *
+     * @param index index of the way
+     * @return the index of the PTWay, -1 if the member of the way is treated as a stop by the {@link PTRouteDataManager}
+     */
+    public int getPTWayIndex(int index) {
+        return ptWayIndices[index];
+    }
+
+    /**
+     * Checks if the way with the given index is a member of a nested relation
+     *
+     * @param index index of the way
+     * @return {@code true} if the way is not a direct member of the route
+     */
+    public boolean isNested(int index) {
+        return nested[index];
+    }
+
+    /**
+     * Returns the unique id of the first node of the way with the given index
+     *
+     * @param index index of the way
+     * @return the unique id of the first node, {@link #NO_NODE} if the way has no nodes
+     */
+    public long getFirstNodeId(int index) {
+        return firstNodeIds[index];
+    }
+
+    /**
+     * Returns the unique id of the last node of the way with the given index
+     *
+     * @param index index of the way
+     * @return the unique id of the last node, {@link #NO_NODE} if the way has no nodes
+     */
+    public long getLastNodeId(int index) {
+        return lastNodeIds[index];
+    }
+
+    /**
+     * Returns the direction in which the way with the given index is traversed
+     *
+     * @param index index of the way
+     * @return {@link #FORWARD}, {@link #BACKWARD} or {@link #NONE} if the way is closed or does not touch its neighbors
+     */
+    public byte getDirection(int index) {
+        return directions[index];
+    }
+
+    /**
+     * Checks if the way with the given index touches the previous way with one of its end nodes
+     *
+     * @param index index of the way
+     * @return {@code true} if the end nodes of the way and the previous way have a node in common
+     */
+    public boolean isConnectedToPrevious(int index) {
+        return index > 0 && firstNodeIds[index] != NO_NODE
+            && (isEndNode(index - 1, firstNodeIds[index]) || isEndNode(index - 1, lastNodeIds[index]));
+    }
+
+    /**
+     * Returns the ways of the route which contain the given node
+     *
+     * @param node node
+     * @return the indices of the ways in ascending order, each way only once
+     */
+    public int[] getWaysAt(Node node) {
+        int i = node != null ? Arrays.binarySearch(nodeIds, node.getUniqueId()) : -1;
+        if (i < 0) {
+            return new int[0];
+        }
+        return Arrays.copyOfRange(nodeWays, nodeOffsets[i], nodeOffsets[i + 1]);
+    }
+
+    /**
+     * Returns the number of ways of the PTWays of the route which contain the given node
+     *
+     * @param node node
+     * @return the number of ways, a way which is passed several times is counted each time
+     */
+    public int getPTWayCountAt(Node node) {
+        int i = node != null ? Arrays.binarySearch(nodeIds, node.getUniqueId()) : -1;
+        return i < 0 ? 0 : ptWayCounts[i];
+    }
+
+    /**
+     * Returns the number of ways of the PTWays of the route of which the given node is the first or last node
+     *
+     * @param node node
+     * @return the degree of the node in the route, a way which is passed several times is counted each time
+     */
+    public int getEndDegree(Node node) {
+        int i = node != null ? Arrays.binarySearch(nodeIds, node.getUniqueId()) : -1;
+        return i < 0 ? 0 : endDegrees[i];
+    }
+}
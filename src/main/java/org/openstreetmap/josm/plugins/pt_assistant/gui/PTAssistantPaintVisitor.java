@@ -7,18 +7,16 @@ import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Point;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
@@ -29,6 +27,7 @@ import org.openstreetmap.josm.gui.dialogs.relation.sort.WayConnectionTypeCalcula
 import org.openstreetmap.josm.gui.layer.validation.PaintVisitor;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteRefIndex;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.tools.I18n;
 import org.openstreetmap.josm.tools.Logging;
@@ -457,29 +456,7 @@ public class PTAssistantPaintVisitor extends PaintVisitor {
         Point p = mv.getPoint(n);
 
         // draw the ref values of all parent routes:
-        List<String> parentsLabelList = new ArrayList<>();
-
-        for (OsmPrimitive parent : primitive.getReferrers()) {
-            if (parent.getType().equals(OsmPrimitiveType.RELATION)) {
-                Relation relation = (Relation) parent;
-                if (RouteUtils.isVersionTwoPTRoute(relation) && relation.get("ref") != null
-                        && !relation.get("ref").equals("")) {
-
-                    boolean stringFound = false;
-                    for (String s : parentsLabelList) {
-                        if (s.equals(relation.get("ref"))) {
-                            stringFound = true;
-                        }
-                    }
-                    if (!stringFound) {
-                        parentsLabelList.add(relation.get("ref"));
-                    }
-
-                }
-            }
-        }
-
-        parentsLabelList.sort(new RefTagComparator());
+        List<String> parentsLabelList = RouteRefIndex.getRouteRefs(primitive);
 
         StringBuilder sb = new StringBuilder();
         for (String s : parentsLabelList) {
@@ -522,10 +499,32 @@ public class PTAssistantPaintVisitor extends PaintVisitor {
      * Compares route ref numbers
      */
     public static class RefTagComparator implements Comparator<String> {
-        private static final Pattern LEADING_UNSIGNED_INT_PATTERN = Pattern.compile("^([0-9]+).*$");
+        /* the leading int of refs which do not start with an unsigned int, or with one greater than Integer.MAX_VALUE */
+        private static final long NO_LEADING_INT = -1;
 
         @Override
         public int compare(final String s1, final String s2) {
+            return compare(s1, getLeadingInt(s1), s2, getLeadingInt(s2));
+        }
+
+        /**
+         * Sorts the given refs in the order of this comparator. Each ref is parsed only once,
+         * instead of once per comparison.
+         *
+         * @param refs the refs to sort, the sort is stable
+         */
+        public static void sort(final List<String> refs) {
+            final SortKey[] keys = new SortKey[refs.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = new SortKey(refs.get(i));
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < keys.length; i++) {
+                refs.set(i, keys[i].ref);
+            }
+        }
+
+        private static int compare(final String s1, final long s1Number, final String s2, final long s2Number) {
 
             final boolean s1Empty = s1 == null || s1.isEmpty();
             final boolean s2Empty = s2 == null || s2.isEmpty();
@@ -536,28 +535,54 @@ public class PTAssistantPaintVisitor extends PaintVisitor {
                 // both empty: 0 (s1 == s2)
                 return (s1Empty ? -1 : 0) + (s2Empty ? 1 : 0);
             }
-            final Integer s1Number = getLeadingInt(s1);
-            final Integer s2Number = getLeadingInt(s2);
-            if (s1Number != null && s2Number != null) { // both start with integer
-                return Integer.compare(s1Number, s2Number);
-            } else if (s1Number != null) { // only s1 starts with integer
+            if (s1Number != NO_LEADING_INT && s2Number != NO_LEADING_INT) { // both start with integer
+                return Long.compare(s1Number, s2Number);
+            } else if (s1Number != NO_LEADING_INT) { // only s1 starts with integer
                 return -1;
-            } else if (s2Number != null) { // only s2 starts with integer
+            } else if (s2Number != NO_LEADING_INT) { // only s2 starts with integer
                 return 1;
             }
             return s1.compareTo(s2);
         }
 
-        private Integer getLeadingInt(final CharSequence stringValue) {
-            final Matcher matcher = LEADING_UNSIGNED_INT_PATTERN.matcher(stringValue);
-            if (matcher.matches()) {
-                try {
-                    return Integer.parseInt(matcher.group(1));
-                } catch (NumberFormatException e) {
-                    return null;
+        /**
+         * Parses the digits at the start of the given string, without a regular expression
+         * and without allocating
+         */
+        private static long getLeadingInt(final String stringValue) {
+            if (stringValue == null) {
+                return NO_LEADING_INT;
+            }
+            long value = NO_LEADING_INT;
+            for (int i = 0; i < stringValue.length(); i++) {
+                final char c = stringValue.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                value = (value == NO_LEADING_INT ? 0 : value * 10) + (c - '0');
+                if (value > Integer.MAX_VALUE) {
+                    return NO_LEADING_INT;
                 }
             }
-            return null;
+            return value;
+        }
+
+        /**
+         * A ref and its parsed leading int
+         */
+        private static final class SortKey implements Comparable<SortKey> {
+            private final String ref;
+            private final long number;
+
+            SortKey(final String ref) {
+                this.ref = ref;
+                this.number = getLeadingInt(ref);
+            }
+
+            @Override
+            public int compareTo(final SortKey other) {
+                return compare(ref, number, other.ref, other.number);
+            }
         }
     }
 
@@ -1,7 +1,6 @@
 package org.openstreetmap.josm.plugins.pt_assistant.utils;
 
 import java.util.Collection;
-import java.util.Comparator;
 import java.util.Optional;
 
 import org.openstreetmap.josm.data.coor.ILatLon;
@@ -69,7 +68,15 @@ public final class GeometryUtils {
     }
 
     public static <T extends ILatLon> Optional<NearestSegment<T>> findNearestSegment(final Collection<Pair<T, T>> segments, final ILatLon point) {
-        return segments.parallelStream().map(segment -> new NearestSegment<>(distPointToSegment(segment, point), segment)).min(Comparator.comparingDouble(segment -> segment.distance));
+        // most ways only consist of a few segments, so a sequential loop is faster than a parallel stream
+        NearestSegment<T> nearest = null;
+        for (Pair<T, T> segment : segments) {
+            double distance = distPointToSegment(segment, point);
+            if (nearest == null || distance < nearest.distance) {
+                nearest = new NearestSegment<>(distance, segment);
+            }
+        }
+        return Optional.ofNullable(nearest);
     }
 
     public static class NearestSegment<T extends ILatLon> {
@@ -0,0 +1,75 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import java.util.function.BiFunction;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+
+/**
+ * Emits Java Flight Recorder events for the validator stages and the route editing actions of the plugin,
+ * so that they can be analysed together with the rest of a JOSM recording
+ * (e.g. {@code java -XX:StartFlightRecording=filename=josm.jfr -jar josm.jar}).
+ *
+ * The JFR API ({@code jdk.jfr}) is not available on every Java 8 runtime. The event class is therefore built in
+ * a separate source set ({@code src/jfr/java}), which is skipped if the JDK of the build has no JFR API, and it is
+ * loaded by reflection. If the JFR API or the event class can't be found at runtime (or if the event is not enabled
+ * in the running recording), {@link #begin} returns {@link #NONE}.
+ */
+public final class PTFlightRecorder {
+
+    private static final String EVENT_FACTORY = "org.openstreetmap.josm.plugins.pt_assistant.utils.PTOperationEvent$Factory";
+
+    /* creates the events, null if the JFR API or the event class is not available */
+    private static final BiFunction<String, OsmPrimitive, Span> EVENTS = createEventFactory();
+
+    /**
+     * A span that does nothing, used if no event is recorded
+     */
+    public static final Span NONE = () -> { };
+
+    private PTFlightRecorder() {
+        // Hide default constructor for utilities classes
+    }
+
+    /**
+     * A running operation, the event is committed when the span is closed
+     */
+    public interface Span extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /**
+     * Begins an event for the given operation, to be used in a try-with-resources statement
+     *
+     * @param operation name of the operation, e.g. {@code "SortPTRouteMembersAction.sortPTRouteMembers"}
+     * @param primitive the relation or way on which the operation is carried out, can be null
+     * @return the span of the event, or {@link #NONE} if no event is recorded
+     */
+    public static Span begin(String operation, OsmPrimitive primitive) {
+        if (EVENTS == null) {
+            return NONE;
+        }
+        return EVENTS.apply(operation, primitive);
+    }
+
+    /**
+     * Returns whether the JFR API and the event class are available in the running JVM
+     *
+     * @return true if events can be emitted
+     */
+    public static boolean isAvailable() {
+        return EVENTS != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiFunction<String, OsmPrimitive, Span> createEventFactory() {
+        try {
+            Class.forName("jdk.jfr.Event", false, PTFlightRecorder.class.getClassLoader());
+            return (BiFunction<String, OsmPrimitive, Span>) Class.forName(EVENT_FACTORY, true, PTFlightRecorder.class.getClassLoader())
+                .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | ClassCastException e) {
+            return null;
+        }
+    }
+}
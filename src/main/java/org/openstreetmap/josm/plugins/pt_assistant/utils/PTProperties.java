@@ -22,6 +22,37 @@ public final class PTProperties {
     public static final BooleanProperty PROCEED_WITHOUT_FIX =
         new BooleanProperty("pt_assistant.proceed-without-fix", true);
 
+    /**
+     * Options for the validation of route relations. If parallel validation is enabled, the routes are
+     * validated concurrently by the given number of threads (0 means one thread per available processor).
+     */
+    public static final BooleanProperty PARALLEL_VALIDATION =
+        new BooleanProperty("pt_assistant.parallel-validation", false);
+    public static final IntegerProperty VALIDATION_THREADS =
+        new IntegerProperty("pt_assistant.validation-threads", 0);
+    /**
+     * If enabled, only the routes that were affected by edits since the last validation are validated again.
+     * Disabled by default, since changes that the route fingerprint does not cover can be missed.
+     */
+    public static final BooleanProperty INCREMENTAL_VALIDATION =
+        new BooleanProperty("pt_assistant.incremental-validation", false);
+    /**
+     * If enabled, the time needed by each stage of the validation and by each route is measured and logged
+     * at the end of the validation, together with the given number of slowest routes.
+     */
+    public static final BooleanProperty VALIDATION_STATISTICS =
+        new BooleanProperty("pt_assistant.validation-statistics", false);
+    public static final IntegerProperty VALIDATION_STATISTICS_SLOWEST_ROUTES =
+        new IntegerProperty("pt_assistant.validation-statistics.slowest-routes", 10);
+    /**
+     * Bounds of the search for fix variants of a wrong route segment: the maximum number of variants
+     * and the maximum time spent on one route segment, in milliseconds.
+     */
+    public static final IntegerProperty FIX_VARIANTS_MAX =
+        new IntegerProperty("pt_assistant.fix-variants.max", 5);
+    public static final IntegerProperty FIX_VARIANTS_TIME_BUDGET =
+        new IntegerProperty("pt_assistant.fix-variants.time-budget", 200);
+
     /**
      * Options for the roundabout splitter.
      */
@@ -0,0 +1,195 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.plugins.pt_assistant.gui.PTAssistantPaintVisitor;
+
+/**
+ * Index of the refs of the public transport routes (version 2) of which a primitive, usually a
+ * stop_position or platform, is a member. It is used by the route_ref test of the validator and
+ * by the labels of the stops in the pt_assistant layer.
+ *
+ * There is exactly one index per data set, it is created on first use by {@link #getIndex(DataSet)}.
+ * The refs of a primitive are computed when they are first requested, and dropped as soon as
+ * one of the relations of the primitive, or its membership in a relation, changes.
+ */
+public final class RouteRefIndex implements DataSetListener {
+
+    /* referenced weakly, they are kept alive by the listeners of their data set */
+    private static final Map<DataSet, WeakReference<RouteRefIndex>> INDICES = new WeakHashMap<>();
+
+    /* the sorted refs of the routes of each primitive */
+    private final Map<OsmPrimitive, List<String>> routeRefs = new HashMap<>();
+
+    /* the primitives whose refs have been computed from each relation */
+    private final Map<Relation, Set<OsmPrimitive>> dependents = new HashMap<>();
+
+    private RouteRefIndex() {
+        // use getIndex(DataSet) to obtain an instance
+    }
+
+    /**
+     * Returns the index for the given data set. If no index exists yet, it is created
+     * and registered as listener of the data set.
+     *
+     * @param ds the data set
+     * @return the index of the route refs of the data set
+     */
+    public static synchronized RouteRefIndex getIndex(DataSet ds) {
+        WeakReference<RouteRefIndex> reference = INDICES.get(ds);
+        RouteRefIndex index = reference != null ? reference.get() : null;
+        if (index == null) {
+            index = new RouteRefIndex();
+            ds.addDataSetListener(index);
+            INDICES.put(ds, new WeakReference<>(index));
+        }
+        return index;
+    }
+
+    /**
+     * Returns the refs of the routes of the given primitive, using the index of its data set
+     *
+     * @param primitive the primitive
+     * @return the distinct refs of the public transport routes (version 2) of which the primitive
+     *         is a member, sorted with {@link PTAssistantPaintVisitor.RefTagComparator}. Empty if
+     *         the primitive does not belong to a data set.
+     */
+    public static List<String> getRouteRefs(OsmPrimitive primitive) {
+        DataSet ds = primitive.getDataSet();
+        return ds != null ? getIndex(ds).get(primitive) : computeRouteRefs(primitive);
+    }
+
+    /**
+     * Returns the refs of the routes of the given primitive
+     *
+     * @param primitive a primitive of the data set of this index
+     * @return the distinct refs of the public transport routes (version 2) of which the primitive
+     *         is a member, sorted with {@link PTAssistantPaintVisitor.RefTagComparator}
+     */
+    public synchronized List<String> get(OsmPrimitive primitive) {
+        List<String> refs = routeRefs.get(primitive);
+        if (refs == null) {
+            refs = computeRouteRefs(primitive);
+            routeRefs.put(primitive, refs);
+            for (OsmPrimitive referrer : primitive.getReferrers()) {
+                if (referrer instanceof Relation) {
+                    dependents.computeIfAbsent((Relation) referrer, it -> new HashSet<>()).add(primitive);
+                }
+            }
+        }
+        return refs;
+    }
+
+    /**
+     * Returns the number of primitives whose refs are stored in this index
+     *
+     * @return the number of primitives
+     */
+    public synchronized int size() {
+        return routeRefs.size();
+    }
+
+    private static List<String> computeRouteRefs(OsmPrimitive primitive) {
+        List<String> refs = new ArrayList<>();
+        Set<String> distinctRefs = new HashSet<>();
+        for (OsmPrimitive referrer : primitive.getReferrers(true)) {
+            if (referrer instanceof Relation) {
+                Relation relation = (Relation) referrer;
+                String ref = relation.get("ref");
+                if (RouteUtils.isVersionTwoPTRoute(relation) && ref != null && !ref.isEmpty() && distinctRefs.add(ref)) {
+                    refs.add(ref);
+                }
+            }
+        }
+        PTAssistantPaintVisitor.RefTagComparator.sort(refs);
+        return Collections.unmodifiableList(refs);
+    }
+
+    /**
+     * Drops the refs of the past and current members of the given relation
+     */
+    private void invalidate(Relation relation) {
+        Set<OsmPrimitive> members = dependents.remove(relation);
+        if (members != null) {
+            for (OsmPrimitive member : members) {
+                routeRefs.remove(member);
+            }
+        }
+        for (int i = 0; i < relation.getMembersCount(); i++) {
+            routeRefs.remove(relation.getMember(i).getMember());
+        }
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        for (OsmPrimitive primitive : event.getPrimitives()) {
+            if (primitive instanceof Relation) {
+                invalidate((Relation) primitive);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (OsmPrimitive primitive : event.getPrimitives()) {
+            routeRefs.remove(primitive);
+            if (primitive instanceof Relation) {
+                invalidate((Relation) primitive);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        if (event.getPrimitive() instanceof Relation) {
+            invalidate((Relation) event.getPrimitive());
+        }
+    }
+
+    @Override
+    public void nodeMoved(NodeMovedEvent event) {
+        // the position is not relevant for the index
+    }
+
+    @Override
+    public void wayNodesChanged(WayNodesChangedEvent event) {
+        // the nodes of ways are not relevant for the index
+    }
+
+    @Override
+    public synchronized void relationMembersChanged(RelationMembersChangedEvent event) {
+        invalidate(event.getRelation());
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // not relevant for the index
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        routeRefs.clear();
+        dependents.clear();
+    }
+}
@@ -2,31 +2,38 @@
 package org.openstreetmap.josm.plugins.pt_assistant.utils;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.openstreetmap.josm.data.coor.ILatLon;
 import org.openstreetmap.josm.data.coor.LatLon;
-import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteDataManager;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
 
 /**
  * Assigns stops to ways in following steps: (1) checks if the stop is in the
- * list of already assigned stops, (2) checks if the stop has a stop position,
+ * {@link StopToWayCache} of already assigned stops, (2) checks if the stop has a stop position,
  * (3) calculates it using proximity / growing bounding boxes
  *
  * @author darya
@@ -34,14 +41,24 @@ import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
  */
 public final class StopToWayAssigner {
 
-    /* contains assigned stops */
-    public static Map<PTStop, List<Way>> stopToWay = new HashMap<>();
+    /* search radii (in degrees) of the growing-bounding-boxes algorithm */
+    private static final double[] SEARCH_RADII = createSearchRadii();
+    private static final double MAX_SEARCH_RADIUS = SEARCH_RADII[SEARCH_RADII.length - 1];
 
     /*
      * contains all PTWays of the route relation for which this assigner was created
      */
     private final Set<Way> ways = new HashSet<>();
 
+    /* index of the nodes of the ways above, created on first use */
+    private WayNodeIndex wayNodeIndex;
+
+    /* the ways above which contain a node, in the iteration order of the ways, created on first use */
+    private Map<Node, List<Way>> waysByNode;
+
+    /* tree of the segments of the ways above, created on first use */
+    private WaySegmentRTree segmentTree;
+
     public StopToWayAssigner(List<PTWay> ptways) {
         for (PTWay ptway : ptways) {
             ways.addAll(ptway.getWays());
@@ -64,14 +81,25 @@ public final class StopToWayAssigner {
      */
 
     public Way get(PTStop stop) {
+        return get(stop, new HashMap<>());
+    }
+
+    /**
+     * Returns the PTWay for the given PTStop
+     *
+     * @param stop stop
+     * @param referringWaysOfNode the ways of this assigner that refer to a node, in the order of the
+     *     referrers of the node. It is filled on demand and can be shared by the lookups of several stops.
+     * @return the PTWay for the given PTStop
+     */
+    private Way get(PTStop stop, Map<Node, List<Way>> referringWaysOfNode) {
 
         // 1) Search if this stop has already been assigned:
-        if (stopToWay.containsKey(stop)) {
-            List<Way> assignedWays = stopToWay.get(stop);
-            for (Way assignedWay : assignedWays) {
-                if (this.ways.contains(assignedWay)) {
-                    return assignedWay;
-                }
+        StopToWayCache cache = getCache(stop);
+        if (cache != null) {
+            Way assignedWay = cache.get(stop, this.ways);
+            if (assignedWay != null) {
+                return assignedWay;
             }
         }
 
@@ -115,8 +143,8 @@ public final class StopToWayAssigner {
                     )
                 );
             if (closestStopPosition.isPresent()) {
-                final Optional<Way> closestWay = this.ways.stream()
-                    .filter(way -> way.containsNode(closestStopPosition.get()))
+                final Optional<Way> closestWay = getWaysByNode()
+                    .getOrDefault(closestStopPosition.get(), Collections.emptyList()).stream()
                     .collect(WayUtils.nearestToPointCollector(stop.getPlatform().getBBox().getCenter()));
                 if (closestWay.isPresent()) {
                     addAssignedWayToMap(stop, closestWay.get());
@@ -126,27 +154,78 @@ public final class StopToWayAssigner {
         }
 
         // 5) Run the growing-bounding-boxes algorithm:
-        double searchRadius = 0.001;
-        while (searchRadius < 0.005) {
-
-            Way foundWay = this.findNearestWayInRadius(stop.getPlatform(), searchRadius);
+        Way foundWay = findNearestWayInGrowingRadius(
+            Arrays.asList(stop.getPlatform(), stop.getStopPosition()),
+            primitive -> getWayNodeIndex(),
+            node -> node.getReferrers().stream()
+                .filter(referrer -> OsmPrimitiveType.WAY.equals(referrer.getType()))
+                .map(referrer -> (Way) referrer)
+                .filter(this.ways::contains),
+            referringWaysOfNode,
+            getSegmentTree()
+        );
+        if (foundWay != null) {
+            addAssignedWayToMap(stop, foundWay);
+        }
+        return foundWay;
+    }
 
-            if (foundWay != null) {
-                addAssignedWayToMap(stop, foundWay);
-                return foundWay;
+    /**
+     * Returns the ways for all given stops at once. The stops are resolved against indices
+     * of the ways of this assigner that are created once: the ways by node, the nodes of the
+     * ways and the segments of the ways. The ways around the stops are looked up only once
+     * for all stops, stops that are close to each other share most of them.
+     *
+     * @param stops the stops, e.g. all stops of a route
+     * @return the assigned way of each stop. Stops for which no way is found are not contained.
+     */
+    public Map<PTStop, Way> get(Collection<PTStop> stops) {
+        Map<PTStop, Way> result = new LinkedHashMap<>();
+        Map<Node, List<Way>> referringWaysOfNode = new HashMap<>();
+        for (PTStop stop : stops) {
+            Way way = result.containsKey(stop) ? result.get(stop) : get(stop, referringWaysOfNode);
+            if (way != null) {
+                result.put(stop, way);
             }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ways for all stops of the route of the given manager
+     *
+     * @param manager the manager of the route
+     * @return the assigned way of each stop of the route. Stops for which no way is found are not contained.
+     * @see #get(Collection)
+     */
+    public static Map<PTStop, Way> assignStops(PTRouteDataManager manager) {
+        return new StopToWayAssigner(manager.getPTWays()).get(manager.getPTStops());
+    }
 
-            foundWay = this.findNearestWayInRadius(stop.getStopPosition(), searchRadius);
+    private synchronized WayNodeIndex getWayNodeIndex() {
+        if (wayNodeIndex == null) {
+            wayNodeIndex = WayNodeIndex.createForWays(this.ways);
+        }
+        return wayNodeIndex;
+    }
 
-            if (foundWay != null) {
-                addAssignedWayToMap(stop, foundWay);
-                return foundWay;
+    private synchronized Map<Node, List<Way>> getWaysByNode() {
+        if (waysByNode == null) {
+            waysByNode = new HashMap<>();
+            for (Way way : this.ways) {
+                for (Node node : new HashSet<>(way.getNodes())) {
+                    waysByNode.computeIfAbsent(node, n -> new ArrayList<>(2)).add(way);
+                }
             }
-
-            searchRadius = searchRadius + 0.001;
         }
+        return waysByNode;
+    }
 
-        return null;
+    private synchronized WaySegmentRTree getSegmentTree() {
+        if (segmentTree == null) {
+            segmentTree = new WaySegmentRTree(this.ways);
+        }
+        return segmentTree;
     }
 
     /**
@@ -189,59 +268,129 @@ public final class StopToWayAssigner {
     }
 
     /**
-     * Finds the PTWay in the given radius of the OsmPrimitive. The PTWay has to
-     * belong to the route relation for which this StopToWayAssigner was
-     * created. If multiple PTWays were found, the closest one is chosen.
+     * Finds the way nearest to the given primitives by searching in growing bounding
+     * boxes around them. For each search radius, the primitives are tried in the given
+     * order, and the first radius for which a way is found determines the result. If
+     * multiple ways are found for the same primitive and radius, the closest one is chosen.
      *
-     * @param platform platform
-     * @param searchRadius search radius
-     * @return the PTWay in the given radius of the OsmPrimitive
+     * The way nodes around each primitive are only looked up once for the largest
+     * search radius, the smaller radii are then evaluated on these candidates.
+     *
+     * @param primitives the primitives around which the ways are searched, null elements are skipped
+     * @param nodeToWays returns the eligible ways of a node found in the vicinity of a primitive
+     * @return the nearest eligible way, or null if there is none within the largest search radius
      */
-    private Way findNearestWayInRadius(OsmPrimitive platform, double searchRadius) {
+    public static Way findNearestWayInGrowingRadius(List<? extends OsmPrimitive> primitives,
+            Function<Node, Stream<Way>> nodeToWays) {
+        return findNearestWayInGrowingRadius(primitives,
+            primitive -> WayNodeIndex.getIndex(primitive.getDataSet()), nodeToWays, new HashMap<>(), null);
+    }
 
-        if (platform == null) {
-            return null;
+    /**
+     * Same as {@link #findNearestWayInGrowingRadius(List, Function)}, but the nodes
+     * around the primitives are searched in the given index instead of the index of
+     * the whole data set.
+     *
+     * @param primitives the primitives around which the ways are searched, null elements are skipped
+     * @param indexOfPrimitive returns the index in which the nodes around a primitive are searched
+     * @param nodeToWays returns the eligible ways of a node found in the vicinity of a primitive
+     * @param waysOfNode the results of {@code nodeToWays}, filled on demand
+     * @param segmentTree a tree that contains the segments of all eligible ways, or null to compare
+     *     the candidate ways one by one
+     * @return the nearest eligible way, or null if there is none within the largest search radius
+     */
+    private static Way findNearestWayInGrowingRadius(List<? extends OsmPrimitive> primitives,
+            Function<OsmPrimitive, WayNodeIndex> indexOfPrimitive, Function<Node, Stream<Way>> nodeToWays,
+            Map<Node, List<Way>> waysOfNode, WaySegmentRTree segmentTree) {
+
+        List<ILatLon> points = new ArrayList<>(primitives.size());
+        List<Map<Way, Double>> candidates = new ArrayList<>(primitives.size());
+
+        for (OsmPrimitive primitive : primitives) {
+            if (primitive == null || primitive.getDataSet() == null) {
+                continue;
+            }
+            LatLon center = primitive.getBBox().getCenter();
+            Map<Way, Double> radiusOfWay = new LinkedHashMap<>();
+            for (Node node : indexOfPrimitive.apply(primitive).searchWayNodes(center, MAX_SEARCH_RADIUS)) {
+                double radius = Math.max(Math.abs(node.lon() - center.lon()), Math.abs(node.lat() - center.lat()));
+                for (Way way : waysOfNode.computeIfAbsent(node, n -> nodeToWays.apply(n).collect(Collectors.toList()))) {
+                    radiusOfWay.merge(way, radius, Math::min);
+                }
+            }
+            points.add(OsmPrimitiveType.NODE.equals(primitive.getType()) ? (Node) primitive : center);
+            candidates.add(radiusOfWay);
+        }
+
+        for (double searchRadius : SEARCH_RADII) {
+            for (int i = 0; i < candidates.size(); i++) {
+                Map<Way, Double> radiusOfWay = candidates.get(i);
+                Predicate<Way> isInRadius = way -> radiusOfWay.containsKey(way) && radiusOfWay.get(way) <= searchRadius;
+                Optional<Way> foundWay = segmentTree == null
+                    ? radiusOfWay.keySet().stream().filter(isInRadius).collect(WayUtils.nearestToPointCollector(points.get(i)))
+                    : findNearestWay(segmentTree, points.get(i), radiusOfWay.keySet(), isInRadius);
+                if (foundWay.isPresent()) {
+                    return foundWay.get();
+                }
+            }
         }
+        return null;
+    }
 
-        LatLon platformCenter = platform.getBBox().getCenter();
-        double ax = platformCenter.getX() - searchRadius;
-        double bx = platformCenter.getX() + searchRadius;
-        double ay = platformCenter.getY() - searchRadius;
-        double by = platformCenter.getY() + searchRadius;
-        BBox platformBBox = new BBox(ax, ay, bx, by);
+    /**
+     * Finds the nearest of the candidate ways accepted by the filter in the given tree. Like
+     * {@link WayUtils#nearestToPointCollector(ILatLon)}, the candidate that comes first wins if
+     * several ways have the same distance, e.g. if the point is nearest to a node they share.
+     *
+     * @param segmentTree the tree, contains the segments of all candidate ways
+     * @param point the point
+     * @param candidates the candidate ways
+     * @param filter the filter for the candidate ways
+     * @return the nearest accepted candidate way
+     */
+    private static Optional<Way> findNearestWay(WaySegmentRTree segmentTree, ILatLon point,
+            Collection<Way> candidates, Predicate<Way> filter) {
+        return segmentTree.findNearestSegment(point, filter).map(nearest -> {
+            Set<Way> nearestWays = segmentTree.findSegmentsWithinDistance(point, nearest.distance(point)).stream()
+                .map(WaySegmentRTree.Segment::getWay)
+                .filter(filter)
+                .collect(Collectors.toSet());
+            return candidates.stream().filter(nearestWays::contains).findFirst().orElse(nearest.getWay());
+        });
+    }
 
-        final ILatLon platformNode;
-        if (OsmPrimitiveType.NODE.equals(platform.getType())) {
-            platformNode = (Node) platform;
-        } else {
-            platformNode = platform.getBBox().getCenter();
+    private static double[] createSearchRadii() {
+        List<Double> radii = new ArrayList<>();
+        double searchRadius = 0.001;
+        while (searchRadius < 0.005) {
+            radii.add(searchRadius);
+            searchRadius = searchRadius + 0.001;
         }
+        return radii.stream().mapToDouble(Double::doubleValue).toArray();
+    }
 
-        return platform.getDataSet().getNodes().stream()
-            .filter(node -> platformBBox.bounds(node.getBBox())) // only nodes in BBox
-            .flatMap(node -> node.getReferrers().stream()) // operate on the referrers of the nodes
-            .map(referrer -> OsmPrimitiveType.WAY.equals(referrer.getType()) ? (Way) referrer : null) // keep only the ways
-            .filter(Objects::nonNull)
-            .filter(this.ways::contains)
-            .collect(WayUtils.nearestToPointCollector(platformNode)) // find the way that is closest to the platformNode
-            .orElse(null);
+    /**
+     * Returns the cache of assigned ways for the data set of the given stop
+     *
+     * @param stop stop
+     * @return the cache for the data set of the stop, or null if the stop does not belong to a data set
+     */
+    private static StopToWayCache getCache(PTStop stop) {
+        DataSet ds = stop.getMember().getDataSet();
+        return ds == null ? null : StopToWayCache.getCache(ds);
     }
 
     /**
-     * Adds the given way to the map of assigned ways. Assumes that the given
-     * way is not contained in the map.
+     * Adds the given way to the cache of assigned ways. Assumes that the given
+     * way is not yet assigned to the stop.
      *
      * @param stop stop
      * @param way way
      */
-    private void addAssignedWayToMap(PTStop stop, Way way) {
-        if (stopToWay.containsKey(stop)) {
-            List<Way> assignedWays = stopToWay.get(stop);
-            assignedWays.add(way);
-        } else {
-            List<Way> assignedWays = new ArrayList<>();
-            assignedWays.add(way);
-            stopToWay.put(stop, assignedWays);
+    private static void addAssignedWayToMap(PTStop stop, Way way) {
+        StopToWayCache cache = getCache(stop);
+        if (cache != null) {
+            cache.put(stop, way);
         }
     }
 }
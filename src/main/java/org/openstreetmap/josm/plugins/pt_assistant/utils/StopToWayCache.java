@@ -0,0 +1,219 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
+
+/**
+ * Remembers the ways to which the stops of a {@link DataSet} have been assigned by the
+ * {@link StopToWayAssigner}. There is exactly one cache per data set, it is created on first
+ * use by {@link #getCache(DataSet)}.
+ *
+ * The number of entries is bounded, the least recently used entries are dropped first.
+ * Entries are evicted as soon as the data set changes in a way that can affect them
+ * (e.g. one of the assigned ways is split, or a node of it is moved).
+ */
+public final class StopToWayCache implements DataSetListener {
+
+    /* maximum number of stops for which the assigned ways are kept */
+    static final int MAX_SIZE = 10_000;
+
+    /* referenced weakly, they are kept alive by the listeners of their data set */
+    private static final Map<DataSet, WeakReference<StopToWayCache>> CACHES = new WeakHashMap<>();
+
+    /* contains assigned stops, in access order */
+    private final Map<PTStop, List<Way>> stopToWay = new LinkedHashMap<PTStop, List<Way>>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PTStop, List<Way>> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+
+    private StopToWayCache() {
+        // use getCache(DataSet) to obtain an instance
+    }
+
+    /**
+     * Returns the cache for the given data set. If no cache exists yet, it is created
+     * and registered as listener of the data set.
+     *
+     * @param ds the data set
+     * @return the cache of stop to way assignments for the data set
+     */
+    public static synchronized StopToWayCache getCache(DataSet ds) {
+        WeakReference<StopToWayCache> reference = CACHES.get(ds);
+        StopToWayCache cache = reference != null ? reference.get() : null;
+        if (cache == null) {
+            cache = new StopToWayCache();
+            ds.addDataSetListener(cache);
+            CACHES.put(ds, new WeakReference<>(cache));
+        }
+        return cache;
+    }
+
+    /**
+     * Returns the first way which has been assigned to the given stop and which
+     * is contained in the given collection of ways
+     *
+     * @param stop the stop
+     * @param ways the ways that can be assigned to the stop
+     * @return the assigned way, or null if the stop has not been assigned to any of the ways
+     */
+    public synchronized Way get(PTStop stop, Collection<Way> ways) {
+        List<Way> assignedWays = stopToWay.get(stop);
+        if (assignedWays != null) {
+            for (Way assignedWay : assignedWays) {
+                if (ways.contains(assignedWay)) {
+                    hitCount.incrementAndGet();
+                    return assignedWay;
+                }
+            }
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Adds the given way to the ways assigned to the given stop
+     *
+     * @param stop the stop
+     * @param way the way assigned to the stop
+     */
+    public synchronized void put(PTStop stop, Way way) {
+        stopToWay.computeIfAbsent(stop, k -> new ArrayList<>(1)).add(way);
+    }
+
+    /**
+     * Removes all entries from this cache
+     */
+    public synchronized void clear() {
+        stopToWay.clear();
+    }
+
+    /**
+     * Returns the number of stops for which ways are cached
+     *
+     * @return the number of stops for which ways are cached
+     */
+    public synchronized int size() {
+        return stopToWay.size();
+    }
+
+    /**
+     * Returns how often {@link #get(PTStop, Collection)} found an assigned way
+     *
+     * @return the number of cache hits
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Returns how often {@link #get(PTStop, Collection)} did not find an assigned way
+     *
+     * @return the number of cache misses
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Removes all entries whose stop consists of one of the given primitives, or
+     * which contain one of the given primitives as assigned way.
+     *
+     * @param primitives the changed primitives
+     */
+    private void evict(Collection<? extends OsmPrimitive> primitives) {
+        if (primitives.isEmpty() || stopToWay.isEmpty()) {
+            return;
+        }
+        Set<OsmPrimitive> changed = new HashSet<>(primitives);
+        stopToWay.entrySet().removeIf(entry ->
+            changed.contains(entry.getKey().getPlatform())
+                || changed.contains(entry.getKey().getStopPosition())
+                || entry.getValue().stream().anyMatch(changed::contains)
+        );
+    }
+
+    @Override
+    public void primitivesAdded(PrimitivesAddedEvent event) {
+        // new primitives do not invalidate existing assignments
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        evict(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        evict(Collections.singleton(event.getPrimitive()));
+    }
+
+    @Override
+    public synchronized void nodeMoved(NodeMovedEvent event) {
+        Node node = event.getNode();
+        List<OsmPrimitive> changed = new ArrayList<>(node.getReferrers());
+        changed.add(node);
+        evict(changed);
+    }
+
+    @Override
+    public synchronized void wayNodesChanged(WayNodesChangedEvent event) {
+        Way way = event.getChangedWay();
+        List<OsmPrimitive> changed = new ArrayList<>(way.getNodes());
+        changed.add(way);
+        evict(changed);
+    }
+
+    @Override
+    public synchronized void relationMembersChanged(RelationMembersChangedEvent event) {
+        Relation relation = event.getRelation();
+        List<OsmPrimitive> changed = new ArrayList<>(relation.getMembersCount());
+        for (RelationMember member : relation.getMembers()) {
+            changed.add(member.getMember());
+        }
+        evict(changed);
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // not relevant for the cache
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        stopToWay.clear();
+    }
+}
@@ -0,0 +1,260 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+
+/**
+ * Grid based spatial index of all nodes of a {@link DataSet} that are members of at least one way.
+ * There is exactly one index per data set, it is created on first use by {@link #getIndex(DataSet)}
+ * and kept up to date by listening to the changes of the data set.
+ *
+ * The index may temporarily contain nodes that are no longer part of a way (e.g. after a way was
+ * shortened), those are filtered out when the index is queried.
+ */
+public final class WayNodeIndex implements DataSetListener {
+
+    /* size of a grid cell in degrees, roughly the smallest search radius used by the plugin */
+    private static final double CELL_SIZE = 0.001;
+
+    /* referenced weakly, they are kept alive by the listeners of their data set */
+    private static final Map<DataSet, WeakReference<WayNodeIndex>> INDICES = new WeakHashMap<>();
+
+    /* nodes contained in each grid cell */
+    private final Map<Long, Set<Node>> cells = new HashMap<>();
+
+    /* the grid cell in which each indexed node was stored */
+    private final Map<Node, Long> cellOfNode = new HashMap<>();
+
+    private WayNodeIndex(DataSet ds) {
+        addAllWays(ds);
+    }
+
+    private WayNodeIndex(Collection<Way> ways) {
+        for (Way way : ways) {
+            addWay(way);
+        }
+    }
+
+    /**
+     * Creates an index of the nodes of the given ways. The index is not registered as listener
+     * of any data set, so it is only meant to be used as long as the ways are not modified.
+     *
+     * @param ways the ways whose nodes are indexed
+     * @return the index of the nodes of the given ways
+     */
+    public static WayNodeIndex createForWays(Collection<Way> ways) {
+        return new WayNodeIndex(ways);
+    }
+
+    /**
+     * Returns the index for the given data set. If no index exists yet, it is created
+     * and registered as listener of the data set.
+     *
+     * @param ds the data set
+     * @return the index of the way nodes of the data set
+     */
+    public static synchronized WayNodeIndex getIndex(DataSet ds) {
+        WeakReference<WayNodeIndex> reference = INDICES.get(ds);
+        WayNodeIndex index = reference != null ? reference.get() : null;
+        if (index == null) {
+            index = new WayNodeIndex(ds);
+            ds.addDataSetListener(index);
+            INDICES.put(ds, new WeakReference<>(index));
+        }
+        return index;
+    }
+
+    /**
+     * Finds all nodes inside the given bounding box that are members of at least one way
+     *
+     * @param bbox the bounding box to search in
+     * @return the nodes in the bounding box that belong to a way
+     */
+    public synchronized List<Node> searchWayNodes(BBox bbox) {
+        List<Node> result = new ArrayList<>();
+        int minX = cellCoordinate(bbox.getTopLeftLon());
+        int maxX = cellCoordinate(bbox.getBottomRightLon());
+        int minY = cellCoordinate(bbox.getBottomRightLat());
+        int maxY = cellCoordinate(bbox.getTopLeftLat());
+        for (int x = minX; x <= maxX; x++) {
+            for (int y = minY; y <= maxY; y++) {
+                Set<Node> cell = cells.get(cellKey(x, y));
+                if (cell == null) {
+                    continue;
+                }
+                for (Node node : cell) {
+                    if (isWayNode(node) && bbox.bounds(node.getBBox())) {
+                        result.add(node);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds all way nodes inside the square with the given center and a side length of
+     * two times the search radius
+     *
+     * @param center center of the search area
+     * @param searchRadius half of the side length of the search area, in degrees
+     * @return the nodes in the search area that belong to a way
+     */
+    public List<Node> searchWayNodes(ILatLon center, double searchRadius) {
+        return searchWayNodes(new BBox(
+            center.lon() - searchRadius, center.lat() - searchRadius,
+            center.lon() + searchRadius, center.lat() + searchRadius));
+    }
+
+    /**
+     * Returns the number of nodes stored in this index
+     *
+     * @return the number of nodes stored in this index
+     */
+    public synchronized int size() {
+        return cellOfNode.size();
+    }
+
+    private static boolean isWayNode(Node node) {
+        return !node.isDeleted() && node.isLatLonKnown() && node.isReferredByWays(1);
+    }
+
+    private static int cellCoordinate(double degrees) {
+        return (int) Math.floor(degrees / CELL_SIZE);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private void addAllWays(DataSet ds) {
+        for (Way way : ds.getWays()) {
+            if (way.isUsable()) {
+                addWay(way);
+            }
+        }
+    }
+
+    private void addWay(Way way) {
+        for (Node node : way.getNodes()) {
+            addNode(node);
+        }
+    }
+
+    private void addNode(Node node) {
+        if (!node.isLatLonKnown()) {
+            return;
+        }
+        long key = cellKey(cellCoordinate(node.lon()), cellCoordinate(node.lat()));
+        Long oldKey = cellOfNode.put(node, key);
+        if (oldKey != null) {
+            if (oldKey == key) {
+                return;
+            }
+            removeFromCell(oldKey, node);
+        }
+        cells.computeIfAbsent(key, k -> new LinkedHashSet<>()).add(node);
+    }
+
+    private void removeNode(Node node) {
+        Long key = cellOfNode.remove(node);
+        if (key != null) {
+            removeFromCell(key, node);
+        }
+    }
+
+    private void removeFromCell(long key, Node node) {
+        Set<Node> cell = cells.get(key);
+        if (cell != null) {
+            cell.remove(node);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        for (OsmPrimitive primitive : event.getPrimitives()) {
+            if (primitive instanceof Way) {
+                addWay((Way) primitive);
+            } else if (primitive instanceof Node && primitive.isReferredByWays(1)) {
+                addNode((Node) primitive);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        for (OsmPrimitive primitive : event.getPrimitives()) {
+            if (primitive instanceof Node) {
+                removeNode((Node) primitive);
+            } else if (primitive instanceof Way) {
+                for (Node node : ((Way) primitive).getNodes()) {
+                    if (!node.isReferredByWays(1)) {
+                        removeNode(node);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public void tagsChanged(TagsChangedEvent event) {
+        // tags are not relevant for the index
+    }
+
+    @Override
+    public synchronized void nodeMoved(NodeMovedEvent event) {
+        if (cellOfNode.containsKey(event.getNode())) {
+            addNode(event.getNode());
+        }
+    }
+
+    @Override
+    public synchronized void wayNodesChanged(WayNodesChangedEvent event) {
+        // nodes removed from the way stay in the index until they are filtered out by a query
+        addWay(event.getChangedWay());
+    }
+
+    @Override
+    public void relationMembersChanged(RelationMembersChangedEvent event) {
+        // relations are not relevant for the index
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // not relevant for the index
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        cells.clear();
+        cellOfNode.clear();
+        addAllWays(event.getDataset());
+    }
+}
@@ -0,0 +1,322 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+import org.openstreetmap.josm.data.coor.ILatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.tools.Pair;
+
+/**
+ * Immutable R-tree of the segments of a collection of ways, bulk loaded (sort-tile-recursive)
+ * when it is created. Distances are measured like in {@link GeometryUtils#distPointToSegment(Pair, ILatLon)},
+ * so the results are the same as when all segments are compared one by one.
+ *
+ * The tree is not updated when the ways are modified, create a new one in that case.
+ */
+public final class WaySegmentRTree {
+
+    /* maximum number of children of an inner node of the tree */
+    private static final int NODE_CAPACITY = 16;
+
+    private final TreeNode root;
+    private final int size;
+
+    /**
+     * Creates the tree of all segments of the given ways. Segments with a node whose
+     * coordinates are unknown are skipped. If two segments have the same distance to a point,
+     * the one whose way comes first in the given collection (or which comes first in the way) wins.
+     *
+     * @param ways the ways whose segments are indexed
+     */
+    public WaySegmentRTree(Collection<Way> ways) {
+        List<TreeNode> leaves = new ArrayList<>();
+        for (Way way : new LinkedHashSet<>(ways)) {
+            for (int i = 0; i < way.getNodesCount() - 1; i++) {
+                if (way.getNode(i).isLatLonKnown() && way.getNode(i + 1).isLatLonKnown()) {
+                    leaves.add(new TreeNode(new Segment(way, i, leaves.size())));
+                }
+            }
+        }
+        this.size = leaves.size();
+        this.root = leaves.isEmpty() ? null : pack(leaves);
+    }
+
+    /**
+     * Returns the number of segments in this tree
+     *
+     * @return the number of segments in this tree
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Finds the segment nearest to the given point
+     *
+     * @param point the point
+     * @return the nearest segment, or an empty optional if the tree is empty
+     */
+    public Optional<Segment> findNearestSegment(ILatLon point) {
+        return findNearestSegment(point, way -> true);
+    }
+
+    /**
+     * Finds the segment nearest to the given point among the segments of the ways accepted
+     * by the filter. The tree is traversed best-first, so only the parts of the tree that can
+     * contain a segment closer than the nearest one are visited.
+     *
+     * @param point the point
+     * @param wayFilter only segments of ways for which this returns {@code true} are considered
+     * @return the nearest accepted segment, or an empty optional if there is none
+     */
+    public Optional<Segment> findNearestSegment(ILatLon point, Predicate<Way> wayFilter) {
+        return findNearestMatchingSegment(point, segment -> wayFilter.test(segment.way));
+    }
+
+    /**
+     * Finds the segment nearest to the given point among the segments accepted by the filter.
+     * The segments are tested in the order of their distance, until one is accepted.
+     *
+     * @param point the point
+     * @param segmentFilter only segments for which this returns {@code true} are considered
+     * @return the nearest accepted segment, or an empty optional if there is none
+     */
+    public Optional<Segment> findNearestMatchingSegment(ILatLon point, Predicate<Segment> segmentFilter) {
+        if (root == null) {
+            return Optional.empty();
+        }
+        PriorityQueue<QueueEntry> queue = new PriorityQueue<>();
+        queue.add(new QueueEntry(root, root.distance(point)));
+        while (!queue.isEmpty()) {
+            QueueEntry entry = queue.poll();
+            Segment segment = entry.node.segment;
+            if (segment != null) {
+                if (segmentFilter.test(segment)) {
+                    return Optional.of(segment);
+                }
+                continue;
+            }
+            for (TreeNode child : entry.node.children) {
+                queue.add(new QueueEntry(child, child.distance(point)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the way of the given collection that is nearest to the given point
+     *
+     * @param point the point
+     * @return the nearest way, or an empty optional if the tree is empty
+     */
+    public Optional<Way> findNearestWay(ILatLon point) {
+        return findNearestSegment(point).map(Segment::getWay);
+    }
+
+    /**
+     * Finds all segments whose distance to the given point is at most the given distance
+     *
+     * @param point the point
+     * @param maxDistance the maximum distance
+     * @return the segments within the distance, in no particular order
+     */
+    public List<Segment> findSegmentsWithinDistance(ILatLon point, double maxDistance) {
+        List<Segment> result = new ArrayList<>();
+        if (root != null) {
+            collectWithinDistance(root, point, maxDistance, result);
+        }
+        return result;
+    }
+
+    private static void collectWithinDistance(TreeNode node, ILatLon point, double maxDistance, List<Segment> result) {
+        if (node.distance(point) > maxDistance) {
+            return;
+        }
+        if (node.segment != null) {
+            result.add(node.segment);
+            return;
+        }
+        for (TreeNode child : node.children) {
+            collectWithinDistance(child, point, maxDistance, result);
+        }
+    }
+
+    /**
+     * Packs the given nodes level by level into parent nodes until only the root is left
+     *
+     * @param nodes the nodes of the lowest level
+     * @return the root node
+     */
+    private static TreeNode pack(List<TreeNode> nodes) {
+        List<TreeNode> level = nodes;
+        while (level.size() > 1) {
+            int parentCount = (level.size() + NODE_CAPACITY - 1) / NODE_CAPACITY;
+            int sliceSize = (int) Math.ceil(Math.sqrt(parentCount)) * NODE_CAPACITY;
+
+            level.sort(Comparator.comparingDouble(TreeNode::centerLon));
+            List<TreeNode> parents = new ArrayList<>(parentCount);
+            for (int sliceStart = 0; sliceStart < level.size(); sliceStart += sliceSize) {
+                List<TreeNode> slice = new ArrayList<>(level.subList(sliceStart, Math.min(sliceStart + sliceSize, level.size())));
+                slice.sort(Comparator.comparingDouble(TreeNode::centerLat));
+                for (int i = 0; i < slice.size(); i += NODE_CAPACITY) {
+                    parents.add(new TreeNode(slice.subList(i, Math.min(i + NODE_CAPACITY, slice.size()))));
+                }
+            }
+            level = parents;
+        }
+        return level.get(0);
+    }
+
+    /**
+     * A segment between two consecutive nodes of a way
+     */
+    public static final class Segment {
+        private final Way way;
+        private final int lowerIndex;
+        private final Pair<Node, Node> nodes;
+        /* position of the segment in the input of the tree, used to break ties */
+        private final int sequence;
+
+        private Segment(Way way, int lowerIndex, int sequence) {
+            this.way = way;
+            this.lowerIndex = lowerIndex;
+            this.nodes = Pair.create(way.getNode(lowerIndex), way.getNode(lowerIndex + 1));
+            this.sequence = sequence;
+        }
+
+        /**
+         * Returns the way to which this segment belongs
+         *
+         * @return the way to which this segment belongs
+         */
+        public Way getWay() {
+            return way;
+        }
+
+        /**
+         * Returns the index of the first node of this segment in the way
+         *
+         * @return the index of the first node of this segment in the way
+         */
+        public int getLowerIndex() {
+            return lowerIndex;
+        }
+
+        /**
+         * Returns the two nodes of this segment
+         *
+         * @return the two nodes of this segment, in the order of the way
+         */
+        public Pair<Node, Node> getNodes() {
+            return nodes;
+        }
+
+        /**
+         * Returns the distance between this segment and the given point
+         *
+         * @param point the point
+         * @return the distance, as calculated by {@link GeometryUtils#distPointToSegment(Pair, ILatLon)}
+         */
+        public double distance(ILatLon point) {
+            return GeometryUtils.distPointToSegment(nodes, point);
+        }
+    }
+
+    private static final class TreeNode {
+        private final double minLon;
+        private final double minLat;
+        private final double maxLon;
+        private final double maxLat;
+        /* set for leaves only */
+        private final Segment segment;
+        /* set for inner nodes only */
+        private final TreeNode[] children;
+
+        TreeNode(Segment segment) {
+            this.segment = segment;
+            this.children = null;
+            this.minLon = Math.min(segment.nodes.a.lon(), segment.nodes.b.lon());
+            this.minLat = Math.min(segment.nodes.a.lat(), segment.nodes.b.lat());
+            this.maxLon = Math.max(segment.nodes.a.lon(), segment.nodes.b.lon());
+            this.maxLat = Math.max(segment.nodes.a.lat(), segment.nodes.b.lat());
+        }
+
+        TreeNode(List<TreeNode> children) {
+            this.segment = null;
+            this.children = children.toArray(new TreeNode[0]);
+            double lon1 = Double.POSITIVE_INFINITY;
+            double lat1 = Double.POSITIVE_INFINITY;
+            double lon2 = Double.NEGATIVE_INFINITY;
+            double lat2 = Double.NEGATIVE_INFINITY;
+            for (TreeNode child : children) {
+                lon1 = Math.min(lon1, child.minLon);
+                lat1 = Math.min(lat1, child.minLat);
+                lon2 = Math.max(lon2, child.maxLon);
+                lat2 = Math.max(lat2, child.maxLat);
+            }
+            this.minLon = lon1;
+            this.minLat = lat1;
+            this.maxLon = lon2;
+            this.maxLat = lat2;
+        }
+
+        double centerLon() {
+            return (minLon + maxLon) / 2;
+        }
+
+        double centerLat() {
+            return (minLat + maxLat) / 2;
+        }
+
+        /**
+         * @param point the point
+         * @return the exact distance for leaves, a lower bound of the distance
+         *     of all contained segments for inner nodes
+         */
+        double distance(ILatLon point) {
+            if (segment != null) {
+                return segment.distance(point);
+            }
+            double dLon = Math.max(0, Math.max(minLon - point.lon(), point.lon() - maxLon));
+            double dLat = Math.max(0, Math.max(minLat - point.lat(), point.lat() - maxLat));
+            // shrink the bound a little, so that rounding errors can't make it exceed the distance of a leaf
+            return Math.sqrt(dLon * dLon + dLat * dLat) * (1 - 1e-12);
+        }
+    }
+
+    /**
+     * Entry of the queue of the best-first search. Entries are ordered by distance, inner nodes
+     * come before leaves with the same distance, so that leaves with the same distance are
+     * returned in the order of their sequence.
+     */
+    private static final class QueueEntry implements Comparable<QueueEntry> {
+        private final TreeNode node;
+        private final double distance;
+
+        QueueEntry(TreeNode node, double distance) {
+            this.node = node;
+            this.distance = distance;
+        }
+
+        @Override
+        public int compareTo(QueueEntry other) {
+            int result = Double.compare(distance, other.distance);
+            if (result != 0) {
+                return result;
+            }
+            if (node.segment == null || other.node.segment == null) {
+                return Boolean.compare(node.segment != null, other.node.segment != null);
+            }
+            return Integer.compare(node.segment.sequence, other.node.segment.sequence);
+        }
+    }
+}
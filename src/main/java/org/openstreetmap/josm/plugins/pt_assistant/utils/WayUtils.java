@@ -1,9 +1,11 @@
 // License: GPL. For details, see LICENSE file.
 package org.openstreetmap.josm.plugins.pt_assistant.utils;
 
+import java.util.AbstractMap;
 import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -174,15 +176,28 @@ public final class WayUtils {
      * @return a collector that will find the way that is nearest to the given {@code point} from a stream
      */
     public static Collector<Way, ?, Optional<Way>> nearestToPointCollector(final ILatLon point) {
-        return Collectors.minBy(
-            Comparator.comparingDouble(way ->
-                GeometryUtils.findNearestSegment(way.getNodePairs(false), point)
-                    .map(GeometryUtils.NearestSegment::getDistance)
-                    .orElse(Double.MAX_VALUE)
-            )
+        // the distance of each way is calculated only once, not again for every comparison
+        return Collectors.collectingAndThen(
+            Collectors.mapping(
+                way -> new AbstractMap.SimpleImmutableEntry<>(way, distanceToWay(way, point)),
+                Collectors.minBy(Comparator.comparingDouble(Map.Entry::getValue))
+            ),
+            nearest -> nearest.map(Map.Entry::getKey)
         );
     }
 
+    /**
+     * Calculates the distance from the given point to the nearest segment of the way
+     * @param way the way
+     * @param point the point
+     * @return the distance to the nearest segment, or {@link Double#MAX_VALUE} if the way has no segments
+     */
+    public static double distanceToWay(final Way way, final ILatLon point) {
+        return GeometryUtils.findNearestSegment(way.getNodePairs(false), point)
+            .map(GeometryUtils.NearestSegment::getDistance)
+            .orElse(Double.MAX_VALUE);
+    }
+
     /**
      * Calculates the {@link LatLon#distanceSq(LatLon)} from {@code origin} to the {@link Way#firstNode()}  and the
      * {@link Way#lastNode()}. Whichever value is lower is returned.
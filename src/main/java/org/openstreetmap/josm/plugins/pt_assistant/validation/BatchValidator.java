@@ -0,0 +1,305 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObjectBuilder;
+
+import org.openstreetmap.josm.data.Preferences;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.preferences.JosmBaseDirectories;
+import org.openstreetmap.josm.data.preferences.JosmUrls;
+import org.openstreetmap.josm.data.projection.ProjectionRegistry;
+import org.openstreetmap.josm.data.projection.Projections;
+import org.openstreetmap.josm.data.validation.Test;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.Compression;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+import org.openstreetmap.josm.spi.preferences.Config;
+import org.openstreetmap.josm.tools.Logging;
+
+/**
+ * Runs the {@link PTAssistantValidatorTest} and the {@link BicycleFootRouteValidatorTest} on whole data sets
+ * without the JOSM GUI, e.g. for a nightly quality assurance of OSM extracts.
+ *
+ * The results are written as JSON lines, one JSON object per line:
+ * <ul>
+ * <li>{@code "type":"route"} for each validated route, with the number of errors and the time needed,</li>
+ * <li>{@code "type":"error"} for each error found by a test,</li>
+ * <li>{@code "type":"summary"} for each test and data set, with the number of routes and the throughput.</li>
+ * </ul>
+ * Routes with incomplete members are not validated, since their members cannot be downloaded without the GUI.
+ *
+ * Usage: {@code BatchValidator [--threads <n>] [--output <file>] <file.osm>...}
+ */
+public final class BatchValidator {
+
+    private static final String USAGE = "Usage: BatchValidator [--threads <n>] [--output <file>] <file.osm>...";
+
+    private final int threads;
+    private final PrintWriter out;
+
+    /**
+     * Creates a new batch validator
+     *
+     * @param threads number of threads used to validate the routes, 0 means one thread per available processor
+     * @param out the writer to which the JSON lines are written
+     */
+    public BatchValidator(int threads, Writer out) {
+        this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        this.out = out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter(out);
+    }
+
+    /**
+     * Validates all routes of the given data set with both tests and writes the results
+     *
+     * @param ds the data set
+     * @param source the name of the data set used in the output, e.g. the file name
+     */
+    public void validate(DataSet ds, String source) {
+        validatePublicTransportRoutes(ds, source);
+        validateBicycleFootRoutes(ds, source);
+        out.flush();
+    }
+
+    private void validatePublicTransportRoutes(DataSet ds, String source) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        AtomicInteger routeCount = new AtomicInteger();
+        test.setRouteValidationListener((route, errorCount, nanos) -> {
+            routeCount.incrementAndGet();
+            writeRoute(source, test, route, errorCount, nanos);
+        });
+
+        // members cannot be downloaded without the GUI, routes with incomplete members are skipped:
+        List<OsmPrimitive> primitives = new ArrayList<>();
+        int skippedRoutes = 0;
+        for (OsmPrimitive primitive : ds.allPrimitives()) {
+            if (primitive instanceof Relation && ((Relation) primitive).hasIncompleteMembers()) {
+                if (RouteUtils.isVersionTwoPTRoute((Relation) primitive)) {
+                    skippedRoutes++;
+                }
+            } else if (!primitive.isIncomplete()) {
+                primitives.add(primitive);
+            }
+        }
+
+        // the settings are passed to the test, the preferences of the user are left untouched:
+        test.setValidationSettings(threads > 1, threads, false);
+        long start = System.nanoTime();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(primitives);
+        test.endTest();
+        long nanos = System.nanoTime() - start;
+
+        for (TestError error : test.getErrors()) {
+            writeError(source, test, error);
+        }
+        writeSummary(source, test, routeCount.get(), skippedRoutes, test.getErrors().size(), nanos);
+    }
+
+    private void validateBicycleFootRoutes(DataSet ds, String source) {
+        List<Relation> routes = new ArrayList<>();
+        int skippedRoutes = 0;
+        for (Relation relation : ds.getRelations()) {
+            if (RouteUtils.isBicycleRoute(relation) || RouteUtils.isFootRoute(relation) || RouteUtils.isHorseRoute(relation)) {
+                if (relation.hasIncompleteMembers()) {
+                    skippedRoutes++;
+                } else {
+                    routes.add(relation);
+                }
+            }
+        }
+
+        // the test has no state shared between routes, so each route is validated by its own instance:
+        BicycleFootRouteValidatorTest test = new BicycleFootRouteValidatorTest();
+        AtomicInteger errorCount = new AtomicInteger();
+        long start = System.nanoTime();
+        Lock readLock = ds.getReadLock();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        readLock.lock();
+        try {
+            pool.submit(() -> routes.parallelStream().map(route -> {
+                BicycleFootRouteValidatorTest routeTest = new BicycleFootRouteValidatorTest();
+                long routeStart = System.nanoTime();
+                routeTest.startTest(NullProgressMonitor.INSTANCE);
+                routeTest.visit(route);
+                routeTest.endTest();
+                return new RouteErrors(route, routeTest.getErrors(), System.nanoTime() - routeStart);
+            }).forEachOrdered(result -> {
+                writeRoute(source, test, result.route, result.errors.size(), result.nanos);
+                for (TestError error : result.errors) {
+                    writeError(source, test, error);
+                }
+                errorCount.addAndGet(result.errors.size());
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logging.error(e);
+        } catch (ExecutionException e) {
+            Logging.error(e);
+        } finally {
+            readLock.unlock();
+            pool.shutdown();
+        }
+        writeSummary(source, test, routes.size(), skippedRoutes, errorCount.get(), System.nanoTime() - start);
+    }
+
+    private void writeRoute(String source, Test test, Relation route, int errorCount, long nanos) {
+        JsonObjectBuilder json = Json.createObjectBuilder()
+            .add("type", "route")
+            .add("source", source)
+            .add("test", test.getName())
+            .add("id", route.getUniqueId());
+        addTag(json, route, "ref");
+        addTag(json, route, "name");
+        json.add("errors", errorCount)
+            .add("millis", nanos / 1e6);
+        writeLine(json);
+    }
+
+    private void writeError(String source, Test test, TestError error) {
+        JsonArrayBuilder primitives = Json.createArrayBuilder();
+        for (OsmPrimitive primitive : error.getPrimitives()) {
+            primitives.add(Json.createObjectBuilder()
+                .add("type", primitive.getType().getAPIName())
+                .add("id", primitive.getUniqueId()));
+        }
+        JsonObjectBuilder json = Json.createObjectBuilder()
+            .add("type", "error")
+            .add("source", source)
+            .add("test", test.getName())
+            .add("code", error.getCode())
+            .add("severity", error.getSeverity().name())
+            .add("message", error.getMessage());
+        if (error.getDescription() != null) {
+            json.add("description", error.getDescription());
+        }
+        json.add("primitives", primitives);
+        writeLine(json);
+    }
+
+    private void writeSummary(String source, Test test, int routeCount, int skippedRouteCount, int errorCount, long nanos) {
+        double seconds = nanos / 1e9;
+        writeLine(Json.createObjectBuilder()
+            .add("type", "summary")
+            .add("source", source)
+            .add("test", test.getName())
+            .add("threads", threads)
+            .add("routes", routeCount)
+            .add("skippedRoutes", skippedRouteCount)
+            .add("errors", errorCount)
+            .add("seconds", seconds)
+            .add("routesPerSecond", seconds > 0 ? routeCount / seconds : 0));
+    }
+
+    private static void addTag(JsonObjectBuilder json, Relation route, String key) {
+        String value = route.get(key);
+        if (value != null) {
+            json.add(key, value);
+        }
+    }
+
+    private synchronized void writeLine(JsonObjectBuilder json) {
+        out.println(json.build().toString());
+    }
+
+    private static final class RouteErrors {
+        private final Relation route;
+        private final List<TestError> errors;
+        private final long nanos;
+
+        RouteErrors(Relation route, List<TestError> errors, long nanos) {
+            this.route = route;
+            this.errors = errors;
+            this.nanos = nanos;
+        }
+    }
+
+    /**
+     * Validates the given OSM files (optionally compressed) and writes the results as JSON lines
+     * to the standard output or to the given output file
+     *
+     * @param args {@code [--threads <n>] [--output <file>] <file.osm>...}
+     */
+    public static void main(String[] args) {
+        int threads = 0;
+        String output = null;
+        List<String> files = new ArrayList<>();
+        try {
+            for (int i = 0; i < args.length; i++) {
+                if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                    threads = Integer.parseInt(args[++i]);
+                } else if ("--output".equals(args[i]) && i + 1 < args.length) {
+                    output = args[++i];
+                } else if (args[i].startsWith("--")) {
+                    throw new IllegalArgumentException(args[i]);
+                } else {
+                    files.add(args[i]);
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+        if (files.isEmpty()) {
+            System.err.println(USAGE);
+            System.exit(2);
+        }
+
+        initHeadless();
+
+        boolean failed = false;
+        try (Writer writer = output != null
+                ? Files.newBufferedWriter(new File(output).toPath(), StandardCharsets.UTF_8)
+                : new OutputStreamWriter(System.out, StandardCharsets.UTF_8)) {
+            BatchValidator validator = new BatchValidator(threads, writer);
+            for (String file : files) {
+                try {
+                    validator.validate(loadDataSet(new File(file)), file);
+                } catch (IOException | IllegalDataException e) {
+                    Logging.error("Could not read " + file + ": " + e.getMessage());
+                    failed = true;
+                }
+            }
+        } catch (IOException e) {
+            Logging.error(e);
+            failed = true;
+        }
+        System.exit(failed ? 1 : 0);
+    }
+
+    static void initHeadless() {
+        Preferences preferences = Preferences.main();
+        preferences.enableSaveOnPut(false);
+        Config.setPreferencesInstance(preferences);
+        Config.setBaseDirectoriesProvider(JosmBaseDirectories.getInstance());
+        Config.setUrlsProvider(JosmUrls.getInstance());
+        ProjectionRegistry.setProjection(Projections.getProjectionByCode("EPSG:3857"));
+    }
+
+    private static DataSet loadDataSet(File file) throws IOException, IllegalDataException {
+        try (InputStream in = Compression.getUncompressedFileInputStream(file)) {
+            return OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+    }
+}
@@ -21,6 +21,7 @@ import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.dialogs.relation.RelationEditor;
 import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
+import org.openstreetmap.josm.plugins.pt_assistant.data.RouteTopology;
 import org.openstreetmap.josm.plugins.pt_assistant.gui.PTAssistantLayerManager;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopUtils;
 
@@ -44,6 +45,9 @@ public abstract class Checker {
     // stores all found errors:
     protected ArrayList<TestError> errors = new ArrayList<>();
 
+    // ways of the relation that is checked, shared with the other checkers of the relation:
+    private RouteTopology topology;
+
     protected Checker(Node node, Test test) {
         this.node = node;
         this.test = test;
@@ -62,6 +66,25 @@ public abstract class Checker {
         return errors;
     }
 
+    /**
+     * Returns the topology of the checked relation, it is built on first use if it has not been set
+     * @return the topology of the checked relation
+     */
+    public RouteTopology getTopology() {
+        if (topology == null) {
+            topology = RouteTopology.of(relation);
+        }
+        return topology;
+    }
+
+    /**
+     * Sets the topology of the checked relation, so that it is shared by the checkers of the relation
+     * @param topology the topology of the checked relation
+     */
+    public void setTopology(RouteTopology topology) {
+        this.topology = topology;
+    }
+
     /**
      * Returns a list of stop-related route relation members with corrected
      * roles (if necessary)
@@ -0,0 +1,393 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.osm.event.AbstractDatasetChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataChangedEvent;
+import org.openstreetmap.josm.data.osm.event.DataSetListener;
+import org.openstreetmap.josm.data.osm.event.NodeMovedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesAddedEvent;
+import org.openstreetmap.josm.data.osm.event.PrimitivesRemovedEvent;
+import org.openstreetmap.josm.data.osm.event.RelationMembersChangedEvent;
+import org.openstreetmap.josm.data.osm.event.TagsChangedEvent;
+import org.openstreetmap.josm.data.osm.event.WayNodesChangedEvent;
+import org.openstreetmap.josm.plugins.pt_assistant.PTAssistantPluginPreferences;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.StopUtils;
+
+/**
+ * Keeps the validation results of the route relations of a {@link DataSet} and tracks which routes
+ * become dirty because of an edit, so that only those have to be validated again. There is exactly
+ * one tracker per data set, it is created on first use by {@link #getTracker(DataSet)}.
+ *
+ * A route becomes dirty if one of its members changes, if a way connected to one of its ways changes,
+ * if a stop area of one of its stops changes, or if a node within the search radius for stop positions
+ * of the route changes. Changes of a relation nested in a route (e.g. a relation of PTWays) make
+ * the route dirty as well.
+ *
+ * In addition, a bounded number of results is kept by the {@link RouteFingerprint} of the route at the
+ * time it was validated. If a dirty route gets the same fingerprint again (e.g. after undo/redo),
+ * the result does not have to be calculated again. This is not done for routes which became dirty
+ * because of a change near the route or of a stop area, since those are not part of the fingerprint.
+ */
+public final class DirtyRouteTracker implements DataSetListener {
+
+    /* search radius (in degrees) used for potential stop positions around platforms, see PTStop */
+    private static final double STOP_POSITION_SEARCH_RADIUS = 0.001;
+
+    /* maximum number of results that are kept by fingerprint */
+    static final int MAX_FINGERPRINT_RESULTS = 1_000;
+
+    /* the trackers are referenced weakly, they are kept alive by the listeners of their data set */
+    private static final Map<DataSet, WeakReference<DirtyRouteTracker>> TRACKERS = new WeakHashMap<>();
+
+    private final DataSet ds;
+
+    /* results of the routes that are not dirty */
+    private final Map<Relation, RouteValidationResult> results = new HashMap<>();
+
+    /* results by route and fingerprint, in access order */
+    private final Map<FingerprintKey, RouteValidationResult> fingerprintResults =
+        new LinkedHashMap<FingerprintKey, RouteValidationResult>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FingerprintKey, RouteValidationResult> eldest) {
+                return size() > MAX_FINGERPRINT_RESULTS;
+            }
+        };
+
+    /* dirty routes affected by a change which is not part of their fingerprint, e.g. of a nearby node.
+       Their results by fingerprint are not used until they have been validated again. */
+    private final Set<Relation> unfingerprintedRoutes = new HashSet<>();
+
+    /* number of changes of the data set, used to detect changes during a validation */
+    private long changeCount;
+
+    /* the preferences used by the tests when the results were stored, see getPreferencesHash() */
+    private int preferences;
+
+    private DirtyRouteTracker(DataSet ds) {
+        this.ds = ds;
+        this.preferences = getPreferencesHash();
+    }
+
+    /**
+     * Returns the tracker for the given data set. If no tracker exists yet, it is created
+     * and registered as listener of the data set.
+     *
+     * @param ds the data set
+     * @return the tracker of the route relations of the data set
+     */
+    public static synchronized DirtyRouteTracker getTracker(DataSet ds) {
+        WeakReference<DirtyRouteTracker> reference = TRACKERS.get(ds);
+        DirtyRouteTracker tracker = reference != null ? reference.get() : null;
+        if (tracker == null) {
+            tracker = new DirtyRouteTracker(ds);
+            ds.addDataSetListener(tracker);
+            TRACKERS.put(ds, new WeakReference<>(tracker));
+        }
+        return tracker;
+    }
+
+    /**
+     * Returns a hash of the preferences which are read by the tests of a route
+     */
+    private static int getPreferencesHash() {
+        return Objects.hash(
+            PTAssistantPluginPreferences.COMPARE_FROM_TAG.get(),
+            PTAssistantPluginPreferences.COMPARE_TO_TAG.get(),
+            PTAssistantPluginPreferences.CHECK_START_END.get(),
+            PTProperties.FIX_VARIANTS_MAX.get(),
+            PTProperties.FIX_VARIANTS_TIME_BUDGET.get());
+    }
+
+    /**
+     * Removes all results if one of the preferences which are read by the tests of a route has been
+     * changed since the results were stored. Must be called before the results are used.
+     */
+    synchronized void checkPreferences() {
+        int currentPreferences = getPreferencesHash();
+        if (currentPreferences != preferences) {
+            clear();
+            preferences = currentPreferences;
+        }
+    }
+
+    /**
+     * Returns the result of the last validation of the given route
+     *
+     * @param route the route relation
+     * @return the result, or null if the route is dirty or has not been validated yet
+     */
+    synchronized RouteValidationResult getResult(Relation route) {
+        return results.get(route);
+    }
+
+    /**
+     * Returns the result of a previous validation of the given route with the same fingerprint
+     *
+     * @param route the route relation
+     * @param fingerprint the current fingerprint of the route
+     * @return the result, or null if the route has not been validated with this fingerprint
+     *     or the result has been dropped from the cache in the meantime
+     */
+    synchronized RouteValidationResult getResult(Relation route, long fingerprint) {
+        if (unfingerprintedRoutes.contains(route)) {
+            return null;
+        }
+        return fingerprintResults.get(new FingerprintKey(route, fingerprint));
+    }
+
+    /**
+     * Returns the number of changes of the data set seen by this tracker
+     *
+     * @return the number of changes, to be passed to {@link #putResult(Relation, long, RouteValidationResult, long)}
+     */
+    synchronized long getChangeCount() {
+        return changeCount;
+    }
+
+    /**
+     * Stores the result of the validation of the given route, the route is not dirty any more.
+     * The result is dropped if the data set has been changed while the route was validated.
+     *
+     * @param route the route relation
+     * @param fingerprint the fingerprint of the route, calculated before the validation started
+     * @param result the result of the validation of the route
+     * @param changeCountBeforeValidation the value of {@link #getChangeCount()} before the validation started
+     */
+    synchronized void putResult(Relation route, long fingerprint, RouteValidationResult result, long changeCountBeforeValidation) {
+        if (changeCount == changeCountBeforeValidation) {
+            results.put(route, result);
+            fingerprintResults.put(new FingerprintKey(route, fingerprint), result);
+            unfingerprintedRoutes.remove(route);
+        }
+    }
+
+    /**
+     * Checks if the given route has to be validated again
+     *
+     * @param route the route relation
+     * @return {@code true} if there is no up to date validation result of the route
+     */
+    public synchronized boolean isDirty(Relation route) {
+        return !results.containsKey(route);
+    }
+
+    /**
+     * Marks all routes as dirty and removes all results
+     */
+    public synchronized void clear() {
+        results.clear();
+        fingerprintResults.clear();
+        unfingerprintedRoutes.clear();
+    }
+
+    /**
+     * Returns the number of routes which are not dirty
+     *
+     * @return the number of routes with an up to date validation result
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    /**
+     * Marks all routes as dirty that can be affected by changes of the given primitives
+     *
+     * @param primitives the changed primitives
+     */
+    private void markDirty(Collection<? extends OsmPrimitive> primitives) {
+        changeCount++;
+        if (results.isEmpty() && fingerprintResults.isEmpty()) {
+            return;
+        }
+        Set<Relation> affected = new HashSet<>();
+        for (OsmPrimitive primitive : primitives) {
+            // relations containing the primitive, or a way connected to it:
+            Set<Relation> direct = new HashSet<>();
+            collectAffectedRelations(primitive, direct);
+            // relations near the primitive, and routes using the stop areas of both:
+            Set<Relation> nearby = new HashSet<>();
+            collectNearbyRelations(primitive, nearby);
+            for (Relation relation : direct) {
+                addRoutesOfStopArea(relation, nearby);
+            }
+            for (Relation relation : new ArrayList<>(nearby)) {
+                addRoutesOfStopArea(relation, nearby);
+            }
+            addParentRelations(direct);
+            addParentRelations(nearby);
+            affected.addAll(direct);
+            affected.addAll(nearby);
+
+            // the fingerprint of these routes does not cover the change:
+            for (Relation relation : nearby) {
+                if (!direct.contains(relation) && RouteUtils.isVersionTwoPTRoute(relation)) {
+                    unfingerprintedRoutes.add(relation);
+                }
+            }
+        }
+        results.keySet().removeAll(affected);
+    }
+
+    private static void collectAffectedRelations(OsmPrimitive primitive, Set<Relation> affected) {
+        if (primitive instanceof Relation) {
+            affected.add((Relation) primitive);
+        }
+        addReferringRelations(primitive, affected);
+        if (primitive instanceof Node) {
+            addRelationsOfParentWays((Node) primitive, affected);
+        } else if (primitive instanceof Way) {
+            // routes of connected ways:
+            for (Node node : ((Way) primitive).getNodes()) {
+                addRelationsOfParentWays(node, affected);
+            }
+        }
+    }
+
+    /**
+     * Adds the routes with a platform near the primitive, which could now have another stop position
+     */
+    private void collectNearbyRelations(OsmPrimitive primitive, Set<Relation> affected) {
+        if ((!(primitive instanceof Relation) || StopUtils.isStopArea((Relation) primitive)) && primitive.getBBox().isValid()) {
+            BBox bbox = primitive.getBBox();
+            affected.addAll(ds.searchRelations(new BBox(
+                bbox.getTopLeftLon() - STOP_POSITION_SEARCH_RADIUS, bbox.getBottomRightLat() - STOP_POSITION_SEARCH_RADIUS,
+                bbox.getBottomRightLon() + STOP_POSITION_SEARCH_RADIUS, bbox.getTopLeftLat() + STOP_POSITION_SEARCH_RADIUS)));
+        }
+    }
+
+    /**
+     * The stops of a route are also assigned to ways using the stop positions of their stop areas
+     */
+    private static void addRoutesOfStopArea(Relation relation, Set<Relation> affected) {
+        if (StopUtils.isStopArea(relation)) {
+            for (RelationMember member : relation.getMembers()) {
+                addReferringRelations(member.getMember(), affected);
+            }
+        }
+    }
+
+    /**
+     * Adds the relations containing one of the given relations, e.g. the route of a nested relation of PTWays
+     */
+    private static void addParentRelations(Set<Relation> affected) {
+        Deque<Relation> parents = new ArrayDeque<>(affected);
+        while (!parents.isEmpty()) {
+            for (OsmPrimitive referrer : parents.pop().getReferrers(true)) {
+                if (referrer instanceof Relation && affected.add((Relation) referrer)) {
+                    parents.push((Relation) referrer);
+                }
+            }
+        }
+    }
+
+    private static void addRelationsOfParentWays(Node node, Set<Relation> affected) {
+        for (OsmPrimitive referrer : node.getReferrers(true)) {
+            if (referrer instanceof Way) {
+                addReferringRelations(referrer, affected);
+            }
+        }
+    }
+
+    private static void addReferringRelations(OsmPrimitive primitive, Set<Relation> affected) {
+        for (OsmPrimitive referrer : primitive.getReferrers(true)) {
+            if (referrer instanceof Relation) {
+                affected.add((Relation) referrer);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void primitivesAdded(PrimitivesAddedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void primitivesRemoved(PrimitivesRemovedEvent event) {
+        markDirty(event.getPrimitives());
+    }
+
+    @Override
+    public synchronized void tagsChanged(TagsChangedEvent event) {
+        markDirty(Collections.singleton(event.getPrimitive()));
+    }
+
+    @Override
+    public synchronized void nodeMoved(NodeMovedEvent event) {
+        markDirty(Collections.singleton(event.getNode()));
+    }
+
+    @Override
+    public synchronized void wayNodesChanged(WayNodesChangedEvent event) {
+        markDirty(Collections.singleton(event.getChangedWay()));
+    }
+
+    @Override
+    public synchronized void relationMembersChanged(RelationMembersChangedEvent event) {
+        markDirty(Collections.singleton(event.getRelation()));
+    }
+
+    @Override
+    public void otherDatasetChange(AbstractDatasetChangedEvent event) {
+        // not relevant for the validation results
+    }
+
+    @Override
+    public synchronized void dataChanged(DataChangedEvent event) {
+        changeCount++;
+        results.clear();
+        fingerprintResults.clear();
+        unfingerprintedRoutes.clear();
+    }
+
+    private static final class FingerprintKey {
+        private final Relation route;
+        private final long fingerprint;
+
+        FingerprintKey(Relation route, long fingerprint) {
+            this.route = route;
+            this.fingerprint = fingerprint;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof FingerprintKey)) {
+                return false;
+            }
+            FingerprintKey other = (FingerprintKey) obj;
+            return route == other.route && fingerprint == other.fingerprint;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(route) + Long.hashCode(fingerprint);
+        }
+    }
+}
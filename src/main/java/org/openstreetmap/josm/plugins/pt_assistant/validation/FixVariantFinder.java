@@ -0,0 +1,325 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
+
+/**
+ * Finds the fix variants of a wrong route segment, i.e. the paths along the ways of the route from the first
+ * to the last way of the segment, using Yen's k-shortest-paths algorithm. The variants are ranked by their
+ * length, the shortest first.
+ *
+ * The search is bounded: it stops as soon as the maximum number of variants has been found or the time
+ * budget is used up, and returns the variants found so far.
+ */
+final class FixVariantFinder {
+
+    /* the ways of the route which contain a node, used as the adjacency of the path graph */
+    private final Map<Node, List<PTWay>> waysByNode = new HashMap<>();
+    private final Map<PTWay, Double> lengths = new HashMap<>();
+    private final int maxVariants;
+    private final long timeBudgetNanos;
+
+    private long deadline;
+    private long sequence;
+
+    /**
+     * Creates a new finder for the ways of a route
+     *
+     * @param ptways the ways of the route
+     * @param maxVariants the maximum number of variants returned by {@link #findVariants}
+     * @param timeBudgetMillis the maximum time spent by one call of {@link #findVariants}, in milliseconds
+     */
+    FixVariantFinder(List<PTWay> ptways, int maxVariants, long timeBudgetMillis) {
+        this.maxVariants = maxVariants;
+        this.timeBudgetNanos = timeBudgetMillis * 1_000_000;
+        for (PTWay ptway : ptways) {
+            double length = 0;
+            for (Way way : ptway.getWays()) {
+                length += way.getLength();
+                for (Node node : way.getNodes()) {
+                    List<PTWay> ways = waysByNode.computeIfAbsent(node, it -> new ArrayList<>(2));
+                    if (!ways.contains(ptway)) {
+                        ways.add(ptway);
+                    }
+                }
+            }
+            lengths.put(ptway, length);
+        }
+    }
+
+    /**
+     * Finds the paths from the start way to the end way
+     *
+     * @param startWay the first way of the paths
+     * @param startNode the node at which the start way is entered
+     * @param endWay the last way of the paths
+     * @return the paths, each starting with the start way and ending with the end way, the shortest first
+     */
+    synchronized List<List<PTWay>> findVariants(PTWay startWay, Node startNode, PTWay endWay) {
+        deadline = System.nanoTime() + timeBudgetNanos;
+        Step source = new Step(startWay, startNode);
+
+        List<Path> variants = new ArrayList<>();
+        Path shortest = findShortestPath(source, endWay, Collections.emptySet(), Collections.emptySet());
+        if (shortest == null) {
+            return Collections.emptyList();
+        }
+        variants.add(shortest);
+
+        PriorityQueue<Path> candidates = new PriorityQueue<>();
+        Set<List<Step>> knownPaths = new HashSet<>();
+        knownPaths.add(shortest.steps);
+        while (variants.size() < maxVariants && !isOverBudget()) {
+            List<Step> previous = variants.get(variants.size() - 1).steps;
+            for (int i = 0; i < previous.size() - 1 && !isOverBudget(); i++) {
+                Step spur = previous.get(i);
+                List<Step> root = previous.subList(0, i + 1);
+
+                // the edges leaving the spur step on the known paths with the same root are removed:
+                Set<Edge> removedEdges = new HashSet<>();
+                for (Path variant : variants) {
+                    if (variant.steps.size() > i + 1 && variant.steps.subList(0, i + 1).equals(root)) {
+                        removedEdges.add(new Edge(spur, variant.steps.get(i + 1).way));
+                    }
+                }
+                // the ways of the root cannot be used again:
+                Set<PTWay> removedWays = new HashSet<>();
+                for (Step step : root) {
+                    removedWays.add(step.way);
+                }
+
+                Path spurPath = findShortestPath(spur, endWay, removedWays, removedEdges);
+                if (spurPath != null) {
+                    List<Step> steps = new ArrayList<>(root.subList(0, i));
+                    steps.addAll(spurPath.steps);
+                    if (isSimple(steps) && knownPaths.add(steps)) {
+                        candidates.add(new Path(steps, getLength(steps), sequence++));
+                    }
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            variants.add(candidates.poll());
+        }
+
+        List<List<PTWay>> result = new ArrayList<>(variants.size());
+        for (Path variant : variants) {
+            List<PTWay> ways = new ArrayList<>(variant.steps.size());
+            for (Step step : variant.steps) {
+                ways.add(step.way);
+            }
+            result.add(ways);
+        }
+        return result;
+    }
+
+    /**
+     * Checks if there is a path from the start way to the end way, without ranking or collecting
+     * the paths. Used to decide if an error can be fixed before its variants are computed.
+     *
+     * @param startWay the first way of the paths
+     * @param startNode the node at which the start way is entered
+     * @param endWay the last way of the paths
+     * @return {@code true} if {@link #findVariants} can find at least one variant, given enough time
+     */
+    boolean hasPath(PTWay startWay, Node startNode, PTWay endWay) {
+        Step source = new Step(startWay, startNode);
+        Set<Step> visited = new HashSet<>();
+        Deque<Step> queue = new ArrayDeque<>();
+        visited.add(source);
+        queue.add(source);
+        while (!queue.isEmpty()) {
+            Step step = queue.poll();
+            if (step != source && step.way.equals(endWay)) {
+                return true;
+            }
+            if (step.exitNode == null) {
+                continue;
+            }
+            for (PTWay next : waysByNode.getOrDefault(step.exitNode, Collections.emptyList())) {
+                Step nextStep = new Step(next, step.exitNode);
+                if (!next.equals(step.way) && visited.add(nextStep)) {
+                    queue.add(nextStep);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dijkstra's algorithm from the given step to the first step on the end way
+     */
+    private Path findShortestPath(Step source, PTWay endWay, Set<PTWay> removedWays, Set<Edge> removedEdges) {
+        Map<Step, Double> distances = new HashMap<>();
+        Map<Step, Step> predecessors = new HashMap<>();
+        PriorityQueue<Path> queue = new PriorityQueue<>();
+        distances.put(source, 0d);
+        queue.add(new Path(Collections.singletonList(source), 0, sequence++));
+
+        while (!queue.isEmpty()) {
+            if (isOverBudget()) {
+                return null;
+            }
+            Path current = queue.poll();
+            Step step = current.steps.get(0);
+            if (current.length > distances.get(step)) {
+                continue;
+            }
+            if (step != source && step.way.equals(endWay)) {
+                List<Step> steps = new ArrayList<>();
+                for (Step it = step; it != null; it = predecessors.get(it)) {
+                    steps.add(it);
+                }
+                Collections.reverse(steps);
+                return new Path(steps, current.length, sequence++);
+            }
+            if (step.exitNode == null) {
+                continue;
+            }
+            for (PTWay next : waysByNode.getOrDefault(step.exitNode, Collections.emptyList())) {
+                if (next.equals(step.way) || (removedWays.contains(next) && !next.equals(endWay))
+                        || removedEdges.contains(new Edge(step, next))) {
+                    continue;
+                }
+                Step nextStep = new Step(next, step.exitNode);
+                double distance = current.length + lengths.get(next);
+                Double known = distances.get(nextStep);
+                if (known == null || distance < known) {
+                    distances.put(nextStep, distance);
+                    predecessors.put(nextStep, step);
+                    queue.add(new Path(Collections.singletonList(nextStep), distance, sequence++));
+                }
+            }
+        }
+        return null;
+    }
+
+    private boolean isOverBudget() {
+        return System.nanoTime() > deadline;
+    }
+
+    private double getLength(List<Step> steps) {
+        double length = 0;
+        for (int i = 1; i < steps.size(); i++) {
+            length += lengths.get(steps.get(i).way);
+        }
+        return length;
+    }
+
+    /**
+     * A path must not use a way twice, except if the end way is also the start way
+     */
+    private static boolean isSimple(List<Step> steps) {
+        Set<PTWay> ways = new HashSet<>();
+        for (int i = 0; i < steps.size() - 1; i++) {
+            if (!ways.add(steps.get(i).way)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * A way of the route, entered at the given node
+     */
+    private static final class Step {
+        private final PTWay way;
+        private final Node entryNode;
+        private final Node exitNode;
+
+        Step(PTWay way, Node entryNode) {
+            this.way = way;
+            this.entryNode = entryNode;
+            this.exitNode = SegmentChecker.getOppositeEndNode(way, entryNode);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Step)) {
+                return false;
+            }
+            Step other = (Step) obj;
+            return way.equals(other.way) && Objects.equals(entryNode, other.entryNode);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(way, entryNode);
+        }
+    }
+
+    /**
+     * The transition from a step to a way
+     */
+    private static final class Edge {
+        private final Step from;
+        private final PTWay to;
+
+        Edge(Step from, PTWay to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Edge)) {
+                return false;
+            }
+            Edge other = (Edge) obj;
+            return from.equals(other.from) && to.equals(other.to);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(from, to);
+        }
+    }
+
+    /**
+     * A sequence of steps and its length, ordered by length, then by number of steps, then by creation
+     */
+    private static final class Path implements Comparable<Path> {
+        private final List<Step> steps;
+        private final double length;
+        private final long sequence;
+
+        Path(List<Step> steps, double length, long sequence) {
+            this.steps = steps;
+            this.length = length;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Path other) {
+            int result = Double.compare(length, other.length);
+            if (result == 0) {
+                result = Integer.compare(steps.size(), other.steps.size());
+            }
+            if (result == 0) {
+                result = Long.compare(sequence, other.sequence);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,154 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.openstreetmap.josm.tools.I18n.tr;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.gui.progress.ProgressMonitor;
+import org.openstreetmap.josm.gui.util.GuiHelper;
+import org.openstreetmap.josm.io.MultiFetchServerObjectReader;
+import org.openstreetmap.josm.io.OsmTransferException;
+import org.openstreetmap.josm.tools.Logging;
+import org.openstreetmap.josm.tools.Utils;
+
+/**
+ * Downloads the incomplete members of all routes at once, before they are validated. The missing
+ * members of the routes are collected into one set, which is split into chunks that are downloaded
+ * concurrently by a {@link MemberDownloader}. The downloaded data is merged into the layer of the
+ * routes one chunk after the other, in the EDT, so that conflicts with local modifications are
+ * added to the conflicts of the layer.
+ */
+final class IncompleteMembersPrefetcher {
+
+    /* the number of primitives requested at once */
+    static final int CHUNK_SIZE = 200;
+    /* the number of concurrent requests */
+    static final int DOWNLOAD_THREADS = 4;
+
+    private final MemberDownloader downloader;
+    private final int chunkSize;
+    private final int threads;
+
+    /**
+     * Creates a new prefetcher
+     *
+     * @param downloader the downloader of the chunks
+     * @param chunkSize the maximum number of primitives per chunk
+     * @param threads the maximum number of chunks downloaded concurrently
+     */
+    IncompleteMembersPrefetcher(MemberDownloader downloader, int chunkSize, int threads) {
+        this.downloader = downloader;
+        this.chunkSize = chunkSize;
+        this.threads = threads;
+    }
+
+    /**
+     * Downloads the given primitives from the OSM API, relations with all their members
+     *
+     * @param ids the ids of the primitives
+     * @return the downloaded primitives
+     * @throws OsmTransferException if the download failed
+     */
+    static DataSet downloadFromServer(Collection<PrimitiveId> ids) throws OsmTransferException {
+        MultiFetchServerObjectReader reader = MultiFetchServerObjectReader.create();
+        reader.setRecurseDownRelations(true);
+        reader.appendIds(ids);
+        return reader.parseOsm(NullProgressMonitor.INSTANCE);
+    }
+
+    /**
+     * Collects the incomplete members of the given routes, and of the relations nested in them
+     *
+     * @param routes route relations
+     * @return the ids of the incomplete members, each only once, in the order of the routes
+     */
+    static Set<PrimitiveId> collectMissingMembers(Collection<Relation> routes) {
+        Set<PrimitiveId> ids = new LinkedHashSet<>();
+        for (Relation route : routes) {
+            addMissingMembers(route, ids);
+            for (int i = 0; i < route.getMembersCount(); i++) {
+                RelationMember member = route.getMember(i);
+                if (member.isRelation() && !member.getMember().isIncomplete()) {
+                    addMissingMembers(member.getRelation(), ids);
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static void addMissingMembers(Relation relation, Set<PrimitiveId> ids) {
+        for (int i = 0; i < relation.getMembersCount(); i++) {
+            OsmPrimitive member = relation.getMember(i).getMember();
+            if (member.isIncomplete()) {
+                ids.add(member.getPrimitiveId());
+            }
+        }
+    }
+
+    /**
+     * Downloads the incomplete members of the given routes and merges them into the layer.
+     * Blocks until all chunks are downloaded and merged, or the download is canceled. If a chunk
+     * cannot be downloaded, its members stay incomplete.
+     *
+     * @param layer the layer of the routes
+     * @param routes route relations
+     * @param progressMonitor the progress monitor, advanced for each merged chunk
+     * @return the number of members which have been downloaded
+     * @throws InterruptedException if interrupted while waiting for the download
+     */
+    int prefetch(OsmDataLayer layer, Collection<Relation> routes, ProgressMonitor progressMonitor) throws InterruptedException {
+        List<PrimitiveId> ids = new ArrayList<>(collectMissingMembers(routes));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        List<List<PrimitiveId>> chunks = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i += chunkSize) {
+            chunks.add(new ArrayList<>(ids.subList(i, Math.min(i + chunkSize, ids.size()))));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, chunks.size()),
+                Utils.newThreadFactory("pt_assistant-member-download-%d", Thread.NORM_PRIORITY));
+        int downloaded = 0;
+        progressMonitor.beginTask(tr("Downloading {0} incomplete route members", ids.size()), chunks.size());
+        try {
+            List<Future<DataSet>> futures = new ArrayList<>(chunks.size());
+            for (List<PrimitiveId> chunk : chunks) {
+                futures.add(pool.submit(() -> downloader.download(chunk)));
+            }
+            for (int i = 0; i < futures.size() && !progressMonitor.isCanceled(); i++) {
+                try {
+                    DataSet chunkData = futures.get(i).get();
+                    if (chunkData != null) {
+                        GuiHelper.runInEDTAndWait(() -> layer.mergeFrom(chunkData));
+                        downloaded += chunks.get(i).size();
+                    }
+                } catch (ExecutionException e) {
+                    Logging.warn("Could not download {0} incomplete route members: {1}", chunks.get(i).size(), e.getCause());
+                    Logging.trace(e);
+                }
+                progressMonitor.worked(1);
+            }
+        } finally {
+            // the chunks which are not merged yet are canceled:
+            pool.shutdownNow();
+            progressMonitor.finishTask();
+        }
+        return downloaded;
+    }
+}
@@ -0,0 +1,25 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.Collection;
+
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.io.OsmTransferException;
+
+/**
+ * Downloads the incomplete members of the routes before {@link PTAssistantValidatorTest} validates them.
+ * The downloader is called concurrently for several chunks of primitives.
+ */
+@FunctionalInterface
+public interface MemberDownloader {
+
+    /**
+     * Downloads the given primitives, relations with all their members
+     *
+     * @param ids the ids of the primitives
+     * @return a new data set containing the downloaded primitives, which is merged into the validated data set
+     * @throws OsmTransferException if the primitives could not be downloaded
+     */
+    DataSet download(Collection<PrimitiveId> ids) throws OsmTransferException;
+}
@@ -17,12 +17,11 @@ import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
-import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
-import org.openstreetmap.josm.plugins.pt_assistant.gui.PTAssistantPaintVisitor;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteRefIndex;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopUtils;
 
@@ -161,29 +160,8 @@ public class NodeChecker extends Checker {
     }
 
     protected void performRouteRefMatchingTest(Node primitive) {
-        // the ref values of all parent routes:
-        List<String> parentsLabelList = new ArrayList<>();
-        for (OsmPrimitive parent : primitive.getReferrers()) {
-            if (parent.getType().equals(OsmPrimitiveType.RELATION)) {
-                Relation relation = (Relation) parent;
-                if (RouteUtils.isVersionTwoPTRoute(relation) && relation.get("ref") != null
-                        && !relation.get("ref").equals("")) {
-
-                    boolean stringFound = false;
-                    for (String s : parentsLabelList) {
-                        if (s.equals(relation.get("ref"))) {
-                            stringFound = true;
-                        }
-                    }
-                    if (!stringFound) {
-                        parentsLabelList.add(relation.get("ref"));
-                    }
-
-                }
-            }
-        }
-
-        parentsLabelList.sort(new PTAssistantPaintVisitor.RefTagComparator());
+        // the sorted ref values of all parent routes:
+        List<String> parentsLabelList = RouteRefIndex.getRouteRefs(primitive);
         String route_ref = null;
         if (primitive.hasTag("route_ref")) route_ref = primitive.get("route_ref");
         else if (primitive.hasTag("route_ref:De_Lijn")) route_ref = primitive.get("route_ref:De_Lijn");
@@ -6,8 +6,16 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 import java.lang.reflect.InvocationTargetException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Collectors;
 
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
@@ -15,6 +23,7 @@ import javax.swing.SwingUtilities;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.command.SelectCommand;
 import org.openstreetmap.josm.command.SequenceCommand;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmDataManager;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
@@ -25,11 +34,13 @@ import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.MainApplication;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
 import org.openstreetmap.josm.gui.progress.ProgressMonitor;
 import org.openstreetmap.josm.plugins.pt_assistant.PTAssistantPlugin;
 import org.openstreetmap.josm.plugins.pt_assistant.actions.FixTask;
-import org.openstreetmap.josm.plugins.pt_assistant.actions.IncompleteMembersDownloadThread;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteDataManager;
+import org.openstreetmap.josm.plugins.pt_assistant.data.RouteTopology;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteSegment;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
@@ -69,6 +80,26 @@ public class PTAssistantValidatorTest extends Test {
     public static final int ERROR_CODE_STOP_AREA_COMPARE_RELATIONS = 3764;
     public static final int ERROR_CODE_ROUTE_REF = 3765;
 
+    /* route relations collected by visit(Relation) if they are validated in parallel in endTest() */
+    private final List<Relation> routesToValidate = new ArrayList<>();
+
+    /* route segments of the current validation run, replaced in startTest() */
+    private volatile ValidationContext context = new ValidationContext();
+
+    /* notified after each route has been validated, may be null */
+    private RouteValidationListener routeValidationListener;
+
+    /* downloads the incomplete members of the routes in startTest() */
+    private MemberDownloader memberDownloader = IncompleteMembersPrefetcher::downloadFromServer;
+
+    /* timers of the current validation run, null if no statistics are collected */
+    private volatile ValidationStatistics statistics;
+
+    /* overrides of the preferences of the parallel and incremental validation, null to use the preferences */
+    private Boolean parallelValidation;
+    private Integer validationThreads;
+    private Boolean incrementalValidation;
+
     public PTAssistantValidatorTest() {
         super(tr("Public Transport Assistant tests"),
                 tr("Check if route relations are compatible with public transport version 2"));
@@ -114,16 +145,8 @@ public class PTAssistantValidatorTest extends Test {
 
     @Override
     public void visit(Relation r) {
-        // Download incomplete members. If the download does not work, return
-        // and do not do any testing.
-        if (r.hasIncompleteMembers()) {
-
-            boolean downloadSuccessful = this.downloadIncompleteMembers();
-            if (!downloadSuccessful) {
-                return;
-            }
-        }
-
+        // incomplete members have been downloaded in startTest(), if enabled. Relations
+        // which are still incomplete are not tested.
         if (r.hasIncompleteMembers()) {
             return;
         }
@@ -151,19 +174,18 @@ public class PTAssistantValidatorTest extends Test {
             return;
         }
 
-        // Check individual ways using the oneway direction test and the road
-        // type test:
-        WayChecker wayChecker = new WayChecker(r, this);
-        wayChecker.performDirectionTest();
-        wayChecker.performRoadTypeTest();
-        this.errors.addAll(wayChecker.getErrors());
+        if (isParallelValidation()) {
+            // the route is validated together with all other routes in endTest()
+            routesToValidate.add(r);
+            return;
+        }
 
-        proceedWithSorting(r);
+        this.errors.addAll(validateAndNotify(r).getErrors());
 
         // This allows to modify the route before the sorting and
         // SegmentChecker are carried out:
         // if (this.errors.isEmpty()) {
-        // proceedWithSorting(r);
+        // proceedWithSorting(r, this.errors);
         // } else {
         // this.proceedAfterWayCheckerErrors(r);
         // }
@@ -171,65 +193,128 @@ public class PTAssistantValidatorTest extends Test {
     }
 
     /**
-     * Downloads incomplete relation members in an extra thread (user input
-     * required)
+     * Validates the given route and notifies the {@link RouteValidationListener}, if there is one
      *
-     * @return true if successful, false if not successful
+     * @param r route relation
+     * @return the result of the validation of the route
      */
-    private boolean downloadIncompleteMembers() {
-
-        final int[] userSelection = {0};
-
-        try {
-
-            if (SwingUtilities.isEventDispatchThread()) {
-
-                userSelection[0] = showIncompleteMembersDownloadDialog();
-
-            } else {
-
-                SwingUtilities.invokeAndWait(() -> {
-                    try {
-                        userSelection[0] = showIncompleteMembersDownloadDialog();
-                    } catch (InterruptedException e) {
-                        Logging.error(e);
-                    }
+    private RouteValidationResult validateAndNotify(Relation r) {
+        RouteValidationListener listener = routeValidationListener;
+        ValidationStatistics currentStatistics = statistics;
+        if (listener == null && currentStatistics == null) {
+            return validateRoute(r);
+        }
+        long start = System.nanoTime();
+        RouteValidationResult result = validateRoute(r);
+        long nanos = System.nanoTime() - start;
+        if (currentStatistics != null) {
+            currentStatistics.recordRoute(r, nanos);
+        }
+        if (listener != null) {
+            listener.routeValidated(r, result.getErrors().size() + result.getWrongSegmentBuilders().size(), nanos);
+        }
+        return result;
+    }
 
-                });
+    /**
+     * Starts a timer for a stage of the validation
+     *
+     * @param stage name of the stage, see {@link ValidationStatistics}
+     * @param r the validated route, null if the stage is not specific to a route
+     * @return the timer, to be stopped at the end of the stage
+     */
+    StageTimer startTimer(String stage, Relation r) {
+        return StageTimer.start(statistics, stage, r);
+    }
 
+    /**
+     * Runs the WayChecker, RouteChecker and SegmentChecker tests on the given route. If the route
+     * has not been affected by any edit since its last validation, or if it has been validated with
+     * the same fingerprint before, the result of that validation is used.
+     * Does not modify the errors of this test, so it can be called concurrently for different routes.
+     *
+     * @param r route relation
+     * @return the result of the validation of the route
+     */
+    private RouteValidationResult validateRoute(Relation r) {
+        DirtyRouteTracker tracker = isIncrementalValidation() && r.getDataSet() != null
+            ? DirtyRouteTracker.getTracker(r.getDataSet()) : null;
+        long changeCount = 0;
+        long fingerprint = 0;
+        if (tracker != null) {
+            tracker.checkPreferences();
+            RouteValidationResult cachedResult = tracker.getResult(r);
+            if (cachedResult == null) {
+                // the route is dirty, but it may have been validated in the same state before:
+                changeCount = tracker.getChangeCount();
+                fingerprint = RouteFingerprint.of(r);
+                cachedResult = tracker.getResult(r, fingerprint);
+                if (cachedResult != null) {
+                    tracker.putResult(r, fingerprint, cachedResult, changeCount);
+                }
+            }
+            if (cachedResult != null) {
+                cachedResult.registerSegments(context);
+                return cachedResult;
             }
-
-        } catch (InterruptedException | InvocationTargetException e) {
-            return false;
         }
 
-        if (userSelection[0] == JOptionPane.YES_OPTION) {
-
-            Thread t = new IncompleteMembersDownloadThread();
-            t.start();
-            synchronized (t) {
-                try {
-                    t.wait();
-                } catch (InterruptedException e) {
-                    return false;
-                }
-            }
+        List<TestError> routeErrors = new ArrayList<>();
 
-        }
+        StageTimer timer = startTimer(ValidationStatistics.ROUTE_TOPOLOGY, r);
+        RouteTopology topology = RouteTopology.of(r);
+        timer.stop();
 
-        return true;
+        // Check individual ways using the oneway direction test and the road
+        // type test:
+        WayChecker wayChecker = new WayChecker(r, this);
+        wayChecker.setTopology(topology);
+        timer = startTimer(ValidationStatistics.WAY_DIRECTION_TEST, r);
+        wayChecker.performDirectionTest();
+        timer.stop();
+        timer = startTimer(ValidationStatistics.WAY_ROAD_TYPE_TEST, r);
+        wayChecker.performRoadTypeTest();
+        timer.stop();
+        routeErrors.addAll(wayChecker.getErrors());
 
+        RouteValidationResult result = proceedWithSorting(r, topology, routeErrors);
+        if (tracker != null) {
+            tracker.putResult(r, fingerprint, result, changeCount);
+        }
+        return result;
     }
 
     /**
-     * Shows the dialog asking the user about an incomplete member download
+     * Validates the given routes concurrently on a ForkJoin pool while holding the read lock
+     * of their data set. The errors are added in the order of the routes, so they are the same
+     * as if the routes had been validated one after the other.
      *
-     * @return user's selection
-     * @throws InterruptedException
-     *             if interrupted
+     * @param routes route relations
      */
-    private int showIncompleteMembersDownloadDialog() throws InterruptedException {
-        return PTProperties.DOWNLOAD_INCOMPLETE.get() ? JOptionPane.YES_OPTION : JOptionPane.NO_OPTION;
+    private void validateRoutesInParallel(List<Relation> routes) {
+        DataSet ds = routes.get(0).getDataSet();
+        Lock readLock = ds != null ? ds.getReadLock() : null;
+        int threads = getValidationThreads() > 0 ? getValidationThreads() : Runtime.getRuntime().availableProcessors();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        if (readLock != null) {
+            readLock.lock();
+        }
+        try {
+            List<RouteValidationResult> results = pool.submit(() ->
+                routes.parallelStream().map(this::validateAndNotify).collect(Collectors.toList())
+            ).get();
+            results.forEach(result -> this.errors.addAll(result.getErrors()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logging.error(e);
+        } catch (ExecutionException e) {
+            Logging.error(e);
+        } finally {
+            if (readLock != null) {
+                readLock.unlock();
+            }
+            pool.shutdown();
+        }
     }
 
     /**
@@ -275,7 +360,7 @@ public class PTAssistantValidatorTest extends Test {
 
         if (userInput[0] == 0) {
             this.fixErrorFromPlugin(this.errors);
-            proceedWithSorting(r);
+            proceedWithSorting(r, RouteTopology.of(r), this.errors);
             return;
         }
 
@@ -285,7 +370,7 @@ public class PTAssistantValidatorTest extends Test {
         }
 
         if (userInput[0] == 2) {
-            proceedWithSorting(r);
+            proceedWithSorting(r, RouteTopology.of(r), this.errors);
         }
 
         // if userInput==-1 (i.e. no input), do nothing and stop testing of the
@@ -307,10 +392,17 @@ public class PTAssistantValidatorTest extends Test {
      *
      * @param r
      *            relation
+     * @param topology
+     *            topology of the relation, shared by the checkers
+     * @param routeErrors
+     *            list to which the found errors are added
+     * @return the result of the validation of the route
      */
-    private void proceedWithSorting(Relation r) {
+    private RouteValidationResult proceedWithSorting(Relation r, RouteTopology topology, List<TestError> routeErrors) {
 
+        StageTimer timer = startTimer(ValidationStatistics.ROUTE_DATA_MANAGER, r);
         PTRouteDataManager manager = new PTRouteDataManager(r);
+        timer.stop();
         StopToWayAssigner assigner = new StopToWayAssigner(manager.getPTWays());
 
         for (RelationMember rm : manager.getFailedMembers()) {
@@ -324,57 +416,117 @@ public class PTAssistantValidatorTest extends Test {
             builder.primitives(primitives);
             builder.highlight(highlighted);
             TestError e = builder.build();
-            errors.add(e);
+            routeErrors.add(e);
         }
 
         // Check if the relation is correct, or only has a wrong sorting order:
         RouteChecker routeChecker = new RouteChecker(r, this);
         routeChecker.setManager(manager);
         routeChecker.setAssigner(assigner);
-        if (!routeChecker.performFromToTagsTest()) {
+        routeChecker.setTopology(topology);
+        timer = startTimer(ValidationStatistics.FROM_TO_TAGS_TEST, r);
+        boolean fromToTagsTestFailed = routeChecker.performFromToTagsTest();
+        timer.stop();
+        if (!fromToTagsTestFailed) {
+            timer = startTimer(ValidationStatistics.FIRST_LAST_WAY_STOP_TEST, r);
             routeChecker.performFirstLastWayStopTest();
+            timer.stop();
         }
+        timer = startTimer(ValidationStatistics.SORTING_TEST, r);
         routeChecker.performSortingTest();
+        timer.stop();
 
         List<TestError> routeCheckerErrors = routeChecker.getErrors();
 
-        SegmentChecker segmentChecker = new SegmentChecker(r, this);
+        SegmentChecker segmentChecker = new SegmentChecker(r, this, context);
         segmentChecker.setManager(manager);
         segmentChecker.setAssigner(assigner);
+        segmentChecker.setTopology(topology);
+        timer = startTimer(ValidationStatistics.END_STOP_TESTS, r);
         segmentChecker.performFirstStopTest();
         segmentChecker.performLastStopTest();
+        timer.stop();
+        timer = startTimer(ValidationStatistics.STOP_NOT_SERVED_TEST, r);
         segmentChecker.performStopNotServedTest();
+        timer.stop();
+
+        List<PTRouteSegment> correctSegments = new ArrayList<>();
 
         //At this point, there are 3 variants:
         if (routeCheckerErrors.isEmpty()) {
              if (!routeChecker.getHasGap()) {
                  //There are no errors => route is correct
-                 storeCorrectRouteSegments(r, segmentChecker.getManager(),
+                 timer = startTimer(ValidationStatistics.STORE_CORRECT_SEGMENTS, r);
+                 correctSegments = storeCorrectRouteSegments(r, segmentChecker.getManager(),
                          segmentChecker.getAssigner());
+                 timer.stop();
              } else {
                  // There are some other errors/gaps that cannot be fixed by
                  // sorting => start further test (stop-by-stop)
+                 timer = startTimer(ValidationStatistics.STOP_BY_STOP_TEST, r);
                  segmentChecker.performStopByStopTest();
-                 segmentChecker.findFixes();
+                 timer.stop();
+                 timer = startTimer(ValidationStatistics.PREPARE_FIXES, r);
+                 segmentChecker.prepareFixes();
+                 timer.stop();
              }
         } else {
             // There is only a sorting error (can only be 1), but otherwise
             // correct
-            this.errors.addAll(routeChecker.getErrors());
+            routeErrors.addAll(routeChecker.getErrors());
         }
 
         //add eventual errors found
         if (!segmentChecker.getErrors().isEmpty()) {
-            this.errors.addAll(segmentChecker.getErrors());
+            routeErrors.addAll(segmentChecker.getErrors());
         }
+
+        return new RouteValidationResult(routeErrors, correctSegments, segmentChecker.getWrongSegmentBuilders());
     }
 
     @Override
     public void startTest(ProgressMonitor progressMonitor) {
         super.startTest(progressMonitor);
 
-        // reset the static collections in SegmentChecker:
-        SegmentChecker.reset();
+        // the route segments of the previous run are kept by the context of its errors:
+        context = new ValidationContext();
+        statistics = PTProperties.VALIDATION_STATISTICS.get() ? new ValidationStatistics() : null;
+        routesToValidate.clear();
+
+        if (PTProperties.DOWNLOAD_INCOMPLETE.get()) {
+            prefetchIncompleteMembers();
+        }
+    }
+
+    /**
+     * Downloads the incomplete members of the selected routes, or of all routes of the edit data set
+     * if no route is selected, in one batch. The routes are validated afterwards without waiting
+     * for any download.
+     */
+    private void prefetchIncompleteMembers() {
+        OsmDataLayer layer = MainApplication.getLayerManager().getEditLayer();
+        if (layer == null) {
+            return;
+        }
+        DataSet ds = layer.getDataSet();
+        List<Relation> routes = ds.getSelectedRelations().stream()
+            .filter(RouteUtils::isVersionTwoPTRoute).collect(Collectors.toList());
+        if (routes.isEmpty()) {
+            routes = ds.getRelations().stream().filter(RouteUtils::isVersionTwoPTRoute).collect(Collectors.toList());
+        }
+
+        StageTimer timer = startTimer(ValidationStatistics.PREFETCH_INCOMPLETE_MEMBERS, null);
+        try {
+            int downloaded = new IncompleteMembersPrefetcher(memberDownloader,
+                IncompleteMembersPrefetcher.CHUNK_SIZE, IncompleteMembersPrefetcher.DOWNLOAD_THREADS)
+                .prefetch(layer, routes, progressMonitor.createSubTaskMonitor(0, false));
+            Logging.debug("PT Assistant downloaded {0} incomplete route members", downloaded);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logging.error(e);
+        } finally {
+            timer.stop();
+        }
     }
 
     /**
@@ -384,16 +536,41 @@ public class PTAssistantValidatorTest extends Test {
     @Override
     public void endTest() {
 
+        List<Entry<TestError.Builder, PTRouteSegment>> wrongSegmentEntries;
+        if (routesToValidate.isEmpty()) {
+            wrongSegmentEntries = new ArrayList<>(context.getWrongSegmentBuilders().entrySet());
+        } else {
+            validateRoutesInParallel(routesToValidate);
+
+            // order the stop-by-stop errors by route, like in a sequential run:
+            Map<Relation, Integer> routeIndex = new HashMap<>();
+            for (int i = 0; i < routesToValidate.size(); i++) {
+                routeIndex.putIfAbsent(routesToValidate.get(i), i);
+            }
+            wrongSegmentEntries = new ArrayList<>(context.getWrongSegmentBuilders().entrySet());
+            wrongSegmentEntries.sort(Comparator.comparingInt(entry -> routeIndex.getOrDefault(entry.getValue().getRelation(), -1)));
+            routesToValidate.clear();
+        }
+
         // modify the error messages for the stop-by-stop test:
-        SegmentChecker.modifyStopByStopErrorMessages();
+        StageTimer timer = startTimer(ValidationStatistics.MODIFY_ERROR_MESSAGES, null);
+        SegmentChecker.modifyStopByStopErrorMessages(context);
+        timer.stop();
 
         // add the stop-by-stop errors with modified messages:
-        for (Entry<TestError.Builder, PTRouteSegment> entry : SegmentChecker.wrongSegmentBuilders.entrySet()) {
+        for (Entry<TestError.Builder, PTRouteSegment> entry : wrongSegmentEntries) {
             TestError error = entry.getKey().build();
-            SegmentChecker.wrongSegments.put(error, entry.getValue());
+            context.putWrongSegment(error, entry.getValue());
             this.errors.add(error);
         }
 
+        ValidationStatistics currentStatistics = statistics;
+        if (currentStatistics != null) {
+            ValidationStatistics.setLastRun(currentStatistics);
+            Logging.info("PT Assistant validation statistics:\n"
+                    + currentStatistics.getReport(PTProperties.VALIDATION_STATISTICS_SLOWEST_ROUTES.get()));
+        }
+
         super.endTest();
 
     }
@@ -406,23 +583,93 @@ public class PTAssistantValidatorTest extends Test {
      *            route relation
      * @param manager route data manager
      * @param assigner stop to way assigner
+     * @return the created route segments
      */
-    public void storeCorrectRouteSegments(Relation r,
+    public List<PTRouteSegment> storeCorrectRouteSegments(Relation r,
             PTRouteDataManager manager, StopToWayAssigner assigner) {
+        List<PTRouteSegment> segments = new ArrayList<>();
         if (manager.getPTStops().size() > 1) {
+            Map<PTStop, Way> stopToWay = assigner.get(manager.getPTStops());
             for (int i = 1; i < manager.getPTStops().size(); i++) {
                 PTStop startStop = manager.getPTStops().get(i - 1);
                 PTStop endStop = manager.getPTStops().get(i);
-                Way startWay = assigner.get(startStop);
-                Way endWay = assigner.get(endStop);
+                Way startWay = stopToWay.get(startStop);
+                Way endWay = stopToWay.get(endStop);
                 //if no startway and endway for this segment are found, don't store it
                 if (startWay == null || endWay == null)
                     continue;
                 List<PTWay> waysBetweenStops = manager.getPTWaysBetween(startWay, endWay);
-                SegmentChecker.addCorrectSegment(
-                        new PTRouteSegment(startStop, endStop, waysBetweenStops, r));
+                PTRouteSegment segment = new PTRouteSegment(startStop, endStop, waysBetweenStops, r);
+                context.addCorrectSegment(segment);
+                segments.add(segment);
             }
         }
+        return segments;
+    }
+
+    /**
+     * Returns the context of the current (or last) validation run, which holds the correct route
+     * segments and the wrong route segments of the stop-by-stop errors
+     *
+     * @return the validation context
+     */
+    public ValidationContext getValidationContext() {
+        return context;
+    }
+
+    /**
+     * Returns the statistics of the current (or last) validation run of this test
+     *
+     * @return the statistics, or null if {@link PTProperties#VALIDATION_STATISTICS} was disabled
+     */
+    public ValidationStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets how the routes are validated by this test, instead of the preferences
+     * {@link PTProperties#PARALLEL_VALIDATION}, {@link PTProperties#VALIDATION_THREADS} and
+     * {@link PTProperties#INCREMENTAL_VALIDATION}, which are not modified
+     *
+     * @param parallel whether the routes are validated in parallel in {@link #endTest()}
+     * @param threads number of threads of the parallel validation, 0 means one thread per available processor
+     * @param incremental whether the results of routes which have not changed since the last run are reused
+     */
+    public void setValidationSettings(boolean parallel, int threads, boolean incremental) {
+        this.parallelValidation = parallel;
+        this.validationThreads = threads;
+        this.incrementalValidation = incremental;
+    }
+
+    private boolean isParallelValidation() {
+        return parallelValidation != null ? parallelValidation : PTProperties.PARALLEL_VALIDATION.get();
+    }
+
+    private int getValidationThreads() {
+        return validationThreads != null ? validationThreads : PTProperties.VALIDATION_THREADS.get();
+    }
+
+    private boolean isIncrementalValidation() {
+        return incrementalValidation != null ? incrementalValidation : PTProperties.INCREMENTAL_VALIDATION.get();
+    }
+
+    /**
+     * Sets the listener that is notified after each route has been validated
+     *
+     * @param listener the listener, or null to remove the current listener
+     */
+    public void setRouteValidationListener(RouteValidationListener listener) {
+        this.routeValidationListener = listener;
+    }
+
+    /**
+     * Sets the downloader of the incomplete route members, which are downloaded before the validation
+     * if {@link PTProperties#DOWNLOAD_INCOMPLETE} is enabled
+     *
+     * @param downloader the downloader, by default the members are downloaded from the OSM API
+     */
+    public void setMemberDownloader(MemberDownloader downloader) {
+        this.memberDownloader = Objects.requireNonNull(downloader);
     }
 
     /**
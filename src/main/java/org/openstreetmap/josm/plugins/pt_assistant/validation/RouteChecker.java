@@ -12,7 +12,6 @@ import org.openstreetmap.josm.command.ChangeCommand;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
-import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
 import org.openstreetmap.josm.data.osm.Way;
@@ -31,6 +30,7 @@ import org.openstreetmap.josm.plugins.pt_assistant.PTAssistantPluginPreferences;
 import org.openstreetmap.josm.plugins.pt_assistant.actions.SortPTRouteMembersAction;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteDataManager;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
+import org.openstreetmap.josm.plugins.pt_assistant.data.RouteTopology;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayAssigner;
 import org.openstreetmap.josm.tools.Pair;
@@ -76,10 +76,10 @@ public class RouteChecker extends Checker {
         }
 
         final List<RelationMember> waysToCheck = new ArrayList<>();
-        for (RelationMember rm : relation.getMembers()) {
-
-            if (RouteUtils.isPTWay(rm) && rm.getType().equals(OsmPrimitiveType.WAY)) {
-                waysToCheck.add(rm);
+        RouteTopology topology = getTopology();
+        for (int i = 0; i < topology.getWayCount(); i++) {
+            if (!topology.isNested(i)) {
+                waysToCheck.add(relation.getMember(topology.getMemberIndex(i)));
             }
         }
 
@@ -217,8 +217,8 @@ public class RouteChecker extends Checker {
             builder.message(tr("PT: The first stop of the route does not match the first way"));
             List<OsmPrimitive> wayList = new ArrayList<>();
             wayList.add(relation);
-            for (int i = 0; i < relation.getMembers().size(); i++) {
-                RelationMember r = relation.getMembers().get(i);
+            for (int i = 0; i < relation.getMembersCount(); i++) {
+                RelationMember r = relation.getMember(i);
                 if (r.isWay()) {
                     if (r.getWay().equals(assigner.get(stop))) {
                         break;
@@ -242,8 +242,8 @@ public class RouteChecker extends Checker {
             List<OsmPrimitive> wayList = new ArrayList<>();
             wayList.add(relation);
             boolean addWays = false;
-            for (int i = 0; i < relation.getMembers().size(); i++) {
-                    RelationMember r = relation.getMembers().get(i);
+            for (int i = 0; i < relation.getMembersCount(); i++) {
+                    RelationMember r = relation.getMember(i);
                     if (r.isWay()) {
                         if (r.getWay().equals(assigner.get(stop))) {
                             addWays = true;
@@ -0,0 +1,125 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.PTAssistantPluginPreferences;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.StopUtils;
+
+/**
+ * Calculates a 64 bit hash of everything the validation of a route relation depends on:
+ * the tags of the relation, the ids, roles, versions and tags of its members, the nodes
+ * (with tags and coordinates) of its member ways, the ways connected to those nodes,
+ * the same recursively for the members of nested relations,
+ * the stop areas of its stops and the preferences that influence the tests.
+ *
+ * Two routes with the same fingerprint are assumed to produce the same validation result.
+ * Nodes which are close to a platform, but do not belong to a way of the route, are not
+ * part of the fingerprint, the {@link DirtyRouteTracker} does not use the fingerprint of routes
+ * affected by changes of such nodes.
+ */
+final class RouteFingerprint {
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private long hash = FNV_OFFSET_BASIS;
+
+    private RouteFingerprint() {
+        // use of(Relation)
+    }
+
+    /**
+     * Calculates the fingerprint of the given route
+     *
+     * @param route route relation
+     * @return the fingerprint of the route
+     */
+    static long of(Relation route) {
+        RouteFingerprint fingerprint = new RouteFingerprint();
+        fingerprint.add(route.getUniqueId());
+        fingerprint.add(route.getKeys().hashCode());
+        fingerprint.add(PTAssistantPluginPreferences.COMPARE_FROM_TAG.get() ? 1 : 0);
+        fingerprint.add(PTAssistantPluginPreferences.COMPARE_TO_TAG.get() ? 1 : 0);
+        fingerprint.add(PTAssistantPluginPreferences.CHECK_START_END.get() ? 1 : 0);
+        fingerprint.addMembers(route, new HashSet<>());
+        return fingerprint.hash;
+    }
+
+    /**
+     * Adds the members of the given relation, and recursively those of its member relations
+     *
+     * @param relation the route or a relation nested in it
+     * @param visitedRelations the relations whose members have been added, to stop at cycles
+     */
+    private void addMembers(Relation relation, Set<Relation> visitedRelations) {
+        visitedRelations.add(relation);
+        add(relation.getMembersCount());
+        for (RelationMember member : relation.getMembers()) {
+            add(member.getRole().hashCode());
+            addPrimitive(member.getMember());
+            if (member.isNode()) {
+                addCoordinates(member.getNode());
+            } else if (member.isWay()) {
+                addWayNodes(member.getWay());
+            } else if (member.isRelation() && !visitedRelations.contains(member.getRelation())) {
+                addMembers(member.getRelation(), visitedRelations);
+            }
+            addStopAreas(member.getMember());
+        }
+    }
+
+    private void add(long value) {
+        hash = (hash ^ value) * FNV_PRIME;
+    }
+
+    private void addPrimitive(OsmPrimitive primitive) {
+        add(primitive.getType().ordinal());
+        add(primitive.getUniqueId());
+        add(primitive.getVersion());
+        add(primitive.getKeys().hashCode());
+    }
+
+    private void addCoordinates(Node node) {
+        add(Double.doubleToLongBits(node.lat()));
+        add(Double.doubleToLongBits(node.lon()));
+    }
+
+    private void addWayNodes(Way way) {
+        add(way.getNodesCount());
+        for (Node node : way.getNodes()) {
+            add(node.getUniqueId());
+            add(node.getKeys().hashCode());
+            addCoordinates(node);
+            // the ways connected at this node (used e.g. to find trivial fixes):
+            for (OsmPrimitive referrer : node.getReferrers()) {
+                if (referrer instanceof Way && referrer != way && ((Way) referrer).getNodesCount() > 0) {
+                    Way connectedWay = (Way) referrer;
+                    add(connectedWay.getUniqueId());
+                    add(connectedWay.getKeys().hashCode());
+                    add(connectedWay.firstNode().getUniqueId());
+                    add(connectedWay.lastNode().getUniqueId());
+                }
+            }
+        }
+    }
+
+    private void addStopAreas(OsmPrimitive primitive) {
+        for (OsmPrimitive referrer : primitive.getReferrers()) {
+            if (referrer instanceof Relation && StopUtils.isStopArea((Relation) referrer)) {
+                Relation stopArea = (Relation) referrer;
+                add(stopArea.getUniqueId());
+                for (RelationMember member : stopArea.getMembers()) {
+                    add(member.getUniqueId());
+                    add(member.getMember().getKeys().hashCode());
+                }
+            }
+        }
+    }
+}
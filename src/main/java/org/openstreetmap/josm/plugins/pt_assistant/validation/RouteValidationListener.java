@@ -0,0 +1,22 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import org.openstreetmap.josm.data.osm.Relation;
+
+/**
+ * Is notified by {@link PTAssistantValidatorTest} each time a route relation has been validated.
+ * If the routes are validated in parallel, the listener is called concurrently from several threads.
+ */
+@FunctionalInterface
+public interface RouteValidationListener {
+
+    /**
+     * Called after the given route has been validated
+     *
+     * @param route the route relation
+     * @param errorCount the number of errors found in the route, including the stop-by-stop errors
+     *     which are only added to the test in {@link PTAssistantValidatorTest#endTest()}
+     * @param nanos the time needed for the validation of the route, in nanoseconds
+     */
+    void routeValidated(Relation route, int errorCount, long nanos);
+}
@@ -0,0 +1,67 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteSegment;
+
+/**
+ * The outcome of the validation of a single route relation by {@link PTAssistantValidatorTest}:
+ * the errors that were found directly, and the route segments that are needed in
+ * {@link PTAssistantValidatorTest#endTest()} to create the stop-by-stop errors.
+ */
+final class RouteValidationResult {
+
+    private final List<TestError> errors;
+    private final List<PTRouteSegment> correctSegments;
+    private final Map<TestError.Builder, PTRouteSegment> wrongSegmentBuilders;
+
+    RouteValidationResult(List<TestError> errors, List<PTRouteSegment> correctSegments,
+            Map<TestError.Builder, PTRouteSegment> wrongSegmentBuilders) {
+        this.errors = Collections.unmodifiableList(new ArrayList<>(errors));
+        this.correctSegments = Collections.unmodifiableList(new ArrayList<>(correctSegments));
+        this.wrongSegmentBuilders = Collections.unmodifiableMap(new LinkedHashMap<>(wrongSegmentBuilders));
+    }
+
+    /**
+     * Returns the errors found in the route
+     * @return the errors found in the route, in the order in which they were found
+     */
+    List<TestError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Returns the segments of the route that have been found correct
+     * @return the correct segments of the route
+     */
+    List<PTRouteSegment> getCorrectSegments() {
+        return correctSegments;
+    }
+
+    /**
+     * Returns the builders of the stop-by-stop errors of the route
+     * @return the builders of the stop-by-stop errors and their wrong segments
+     */
+    Map<TestError.Builder, PTRouteSegment> getWrongSegmentBuilders() {
+        return wrongSegmentBuilders;
+    }
+
+    /**
+     * Adds the segments of this result to the given validation context, as if the
+     * route had just been validated again
+     *
+     * @param context the context of the current validation run
+     */
+    void registerSegments(ValidationContext context) {
+        for (PTRouteSegment segment : correctSegments) {
+            context.addCorrectSegment(segment);
+        }
+        context.putWrongSegmentBuilders(wrongSegmentBuilders);
+    }
+}
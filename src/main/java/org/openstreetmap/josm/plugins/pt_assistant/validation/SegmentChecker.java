@@ -7,9 +7,15 @@ import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Supplier;
 
 import javax.swing.SwingUtilities;
 
@@ -18,6 +24,7 @@ import org.openstreetmap.josm.command.ChangeCommand;
 import org.openstreetmap.josm.command.Command;
 import org.openstreetmap.josm.data.UndoRedoHandler;
 import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
 import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
@@ -37,7 +44,9 @@ import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteDataManager;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteSegment;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
+import org.openstreetmap.josm.plugins.pt_assistant.data.RouteTopology;
 import org.openstreetmap.josm.plugins.pt_assistant.gui.PTAssistantLayerManager;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayAssigner;
 import org.openstreetmap.josm.tools.Logging;
 
@@ -50,12 +59,11 @@ import org.openstreetmap.josm.tools.Logging;
  */
 public class SegmentChecker extends Checker {
 
-    /* PTRouteSegments that have been validated and are correct */
-    private static List<PTRouteSegment> correctSegments = new ArrayList<>();
+    /* correct and wrong PTRouteSegments of the current validation run, shared with the checkers of other routes */
+    private final ValidationContext context;
 
-    /* PTRouteSegments that are wrong, stored in case the user calls the fix */
-    protected static HashMap<TestError, PTRouteSegment> wrongSegments = new HashMap<>();
-    protected static HashMap<TestError.Builder, PTRouteSegment> wrongSegmentBuilders = new HashMap<>();
+    /* builders of the stop-by-stop errors that were created by this checker */
+    private final List<TestError.Builder> createdBuilders = new ArrayList<>();
 
     /* Manager of the PTStops and PTWays of the current route */
     private PTRouteDataManager manager;
@@ -65,43 +73,25 @@ public class SegmentChecker extends Checker {
 
     public SegmentChecker(Relation relation, Test test) {
 
-        super(relation, test);
+        this(relation, test, test instanceof PTAssistantValidatorTest
+                ? ((PTAssistantValidatorTest) test).getValidationContext() : new ValidationContext());
     }
 
-    /**
-     * Returns the number of route segments that have been already successfully
-     * verified
-     *
-     * @return the number of route segments
-     */
-    public static int getCorrectSegmentCount() {
-        return correctSegments.size();
-    }
+    public SegmentChecker(Relation relation, Test test, ValidationContext context) {
 
-    /**
-     * Adds the given correct segment to the list of correct segments without
-     * checking its correctness
-     *
-     * @param segment to add to the list of correct segments
-     */
-    public static synchronized void addCorrectSegment(PTRouteSegment segment) {
-        for (PTRouteSegment correctSegment : correctSegments) {
-            if (correctSegment.equalsRouteSegment(segment)) {
-                return;
-            }
-        }
-        correctSegments.add(segment);
+        super(relation, test);
+        this.context = context;
     }
 
     /**
-     * Used for unit tests
+     * Returns the context of the validation run in which the given error was found
      *
-     * @param error
+     * @param testError
      *            test error
-     * @return wrong route segment
+     * @return validation context
      */
-    protected static PTRouteSegment getWrongSegment(TestError error) {
-        return wrongSegments.get(error);
+    private static ValidationContext getContext(TestError testError) {
+        return ((PTAssistantValidatorTest) testError.getTester()).getValidationContext();
     }
 
     public void performFirstStopTest() {
@@ -217,24 +207,11 @@ public class SegmentChecker extends Checker {
      */
     private int belongsToAWayOfThisRoute(Node node) {
 
-        boolean contains = false;
-
-        List<PTWay> ptways = getManager().getPTWays();
-        for (PTWay ptway : ptways) {
-            List<Way> ways = ptway.getWays();
-            for (Way way : ways) {
-                if (way.containsNode(node)) {
-
-                    if (way.firstNode().equals(node) || way.lastNode().equals(node)) {
-                        return 0;
-                    }
-
-                    contains = true;
-                }
-            }
+        if (getTopology().getEndDegree(node) > 0) {
+            return 0;
         }
 
-        if (contains) {
+        if (getTopology().getPTWayCountAt(node) > 0) {
             return 1;
         }
 
@@ -243,7 +220,9 @@ public class SegmentChecker extends Checker {
 
     public void performStopNotServedTest() {
         for (PTStop stop : getManager().getPTStops()) {
+            StageTimer timer = startTimer(ValidationStatistics.STOP_TO_WAY_ASSIGNMENT);
             Way way = getAssigner().get(stop);
+            timer.stop();
             if (way == null) {
                 createStopError(stop);
             }
@@ -262,14 +241,19 @@ public class SegmentChecker extends Checker {
 
         List<OsmPrimitive> lastCreatedBuilderHighlighted = null;
 
+        // Assign all stops of the route to ways at once:
+        StageTimer timer = startTimer(ValidationStatistics.STOP_TO_WAY_ASSIGNMENT);
+        Map<PTStop, Way> stopToWay = getAssigner().get(getManager().getPTStops());
+        timer.stop();
+
         // Check each route segment:
         for (int i = 1; i < getManager().getPTStopCount(); i++) {
 
             PTStop startStop = getManager().getPTStops().get(i - 1);
             PTStop endStop = getManager().getPTStops().get(i);
 
-            Way startWay = getAssigner().get(startStop);
-            Way endWay = getAssigner().get(endStop);
+            Way startWay = stopToWay.get(startStop);
+            Way endWay = stopToWay.get(endStop);
             if (startWay == null || endWay == null || (startWay == endWay && startWay == getManager().getLastWay())) {
                 continue;
             }
@@ -280,7 +264,7 @@ public class SegmentChecker extends Checker {
 
             if (firstNode == null) {
                 // check if this error has just been reported:
-                if (wrongSegmentBuilders.isEmpty() && lastCreatedBuilderHighlighted != null && lastCreatedBuilderHighlighted.size() == 1
+                if (!context.hasWrongSegmentBuilders() && lastCreatedBuilderHighlighted != null && lastCreatedBuilderHighlighted.size() == 1
                         && lastCreatedBuilderHighlighted.get(0) == startWay) {
                     // do nothing, this error has already been reported in
                     // the previous route segment
@@ -294,7 +278,8 @@ public class SegmentChecker extends Checker {
                     builder.primitives(primitives);
                     builder.highlight(highlighted);
                     PTRouteSegment routeSegment = new PTRouteSegment(startStop, endStop, segmentWays, relation);
-                    wrongSegmentBuilders.put(builder, routeSegment);
+                    context.putWrongSegmentBuilder(builder, routeSegment);
+                    createdBuilders.add(builder);
                 }
                 continue;
             }
@@ -313,7 +298,8 @@ public class SegmentChecker extends Checker {
                 builder.primitives(primitives);
                 builder.highlight(highlighted);
                 lastCreatedBuilderHighlighted = highlighted;
-                wrongSegmentBuilders.put(builder, routeSegment);
+                context.putWrongSegmentBuilder(builder, routeSegment);
+                createdBuilders.add(builder);
             }
         }
     }
@@ -387,16 +373,7 @@ public class SegmentChecker extends Checker {
     }
 
     private boolean isDeadendNode(Node node) {
-        int count = 0;
-        for (PTWay ptway : getManager().getPTWays()) {
-            List<Way> ways = ptway.getWays();
-            for (Way way : ways) {
-                if (way.firstNode() == node || way.lastNode() == node) {
-                    count++;
-                }
-            }
-        }
-        return count == 1;
+        return getTopology().getEndDegree(node) == 1;
     }
 
     /**
@@ -495,7 +472,7 @@ public class SegmentChecker extends Checker {
      *            node
      * @return the same node if the way is an unsplit roundabout
      */
-    private Node getOppositeEndNode(Way way, Node node) {
+    private static Node getOppositeEndNode(Way way, Node node) {
 
         if (node == way.firstNode()) {
             return way.lastNode();
@@ -517,7 +494,7 @@ public class SegmentChecker extends Checker {
      *            node
      * @return node
      */
-    private Node getOppositeEndNode(PTWay ptway, Node node) {
+    static Node getOppositeEndNode(PTWay ptway, Node node) {
         if (ptway.isWay()) {
             return getOppositeEndNode(ptway.getWays().get(0), node);
         }
@@ -555,15 +532,13 @@ public class SegmentChecker extends Checker {
         List<PTWay> nextPtways = new ArrayList<>();
 
         List<PTWay> ptways = getManager().getPTWays();
+        RouteTopology topology = getTopology();
 
-        for (PTWay ptway : ptways) {
-
-            if (ptway != currentWay) {
-                for (Way way : ptway.getWays()) {
-                    if (way.containsNode(nextNodeInDirectionOfTravel)) {
-                        nextPtways.add(ptway);
-                    }
-                }
+        // a PTWay is added once for each of its ways containing the node:
+        for (int way : topology.getWaysAt(nextNodeInDirectionOfTravel)) {
+            int ptwayIndex = topology.getPTWayIndex(way);
+            if (ptwayIndex >= 0 && ptways.get(ptwayIndex) != currentWay) {
+                nextPtways.add(ptways.get(ptwayIndex));
             }
         }
 
@@ -582,8 +557,8 @@ public class SegmentChecker extends Checker {
          */
 
         if (testError.getCode() == PTAssistantValidatorTest.ERROR_CODE_STOP_BY_STOP) {
-            return !"PT: Problem in the route segment with no automatic fix".equals(
-                    testError.getMessage());
+            // errors without a fix variant, or without any path that could become one, are marked during the validation:
+            return !"PT: Problem in the route segment with no automatic fix".equals(testError.getMessage());
         }
 
         return false;
@@ -592,21 +567,14 @@ public class SegmentChecker extends Checker {
 
     @SuppressWarnings("unused")
     private static boolean isFixableByUsingCorrectSegment(TestError testError) {
-        PTRouteSegment wrongSegment = wrongSegments.get(testError);
-        PTRouteSegment correctSegment = null;
-        for (PTRouteSegment segment : correctSegments) {
-            if (wrongSegment.getFirstStop().equalsStop(segment.getFirstStop())
-                    && wrongSegment.getLastStop().equalsStop(segment.getLastStop())) {
-                correctSegment = segment;
-                break;
-            }
-        }
-        return correctSegment != null;
+        ValidationContext context = getContext(testError);
+        PTRouteSegment wrongSegment = context.getWrongSegment(testError);
+        return !context.getCorrectSegmentsWithSameEndStops(wrongSegment).isEmpty();
     }
 
     @SuppressWarnings("unused")
     private static boolean isFixableBySortingAndRemoval(TestError testError) {
-        PTRouteSegment wrongSegment = wrongSegments.get(testError);
+        PTRouteSegment wrongSegment = getContext(testError).getWrongSegment(testError);
         List<List<PTWay>> fixVariants = wrongSegment.getFixVariants();
         if (!fixVariants.isEmpty()) {
             return true;
@@ -619,48 +587,61 @@ public class SegmentChecker extends Checker {
      */
     protected void findFixes() {
 
-        for (TestError.Builder builder : wrongSegmentBuilders.keySet()) {
-            if (wrongSegmentBuilders.get(builder).getRelation() == this.relation) {
-                findFix(builder);
-            }
+        prepareFixes();
+        for (TestError.Builder builder : createdBuilders) {
+            context.getWrongSegment(builder).computeFixVariants(Runnable::run);
+        }
+    }
+
+    /**
+     * Prepares the search for fixes using sorting and removal. The fix variants of a route segment
+     * are only computed when they are requested by {@link #fixError(TestError)}. Here it is only checked
+     * if there is a path along the ways of the route, so that segments without any fix are known.
+     */
+    protected void prepareFixes() {
+
+        if (createdBuilders.isEmpty()) {
+            return;
+        }
+        // the finder is shared by the segments of this route and only created when it is needed:
+        List<PTWay> ptways = getManager().getPTWays();
+        int maxVariants = PTProperties.FIX_VARIANTS_MAX.get();
+        int timeBudget = PTProperties.FIX_VARIANTS_TIME_BUDGET.get();
+        AtomicReference<FixVariantFinder> finder = new AtomicReference<>();
+
+        // only the builders of this checker are visited, other routes may be validated concurrently
+        for (TestError.Builder builder : createdBuilders) {
+            prepareFix(builder, () -> finder.updateAndGet(
+                    it -> it != null ? it : new FixVariantFinder(ptways, maxVariants, timeBudget)));
         }
     }
 
     /**
      * Modifies the error messages of the stop-by-stop test errors depending on how many fixes each of them has.
+     *
+     * @param context
+     *            the validation run whose errors are modified
      */
-    protected static void modifyStopByStopErrorMessages() {
+    protected static void modifyStopByStopErrorMessages(ValidationContext context) {
 
-        for (Entry<TestError.Builder, PTRouteSegment> entry : SegmentChecker.wrongSegmentBuilders.entrySet()) {
+        for (Entry<TestError.Builder, PTRouteSegment> entry : context.getWrongSegmentBuilders().entrySet()) {
 
             // change the error code based on the availability of fixes:
             TestError.Builder builder = entry.getKey();
             PTRouteSegment wrongSegment = entry.getValue();
-            List<PTRouteSegment> correctSegmentsForThisError = new ArrayList<>();
-            for (PTRouteSegment segment : correctSegments) {
-                if (wrongSegment.getFirstWay().getUniqueId() == segment.getFirstWay().getUniqueId()
-                        && wrongSegment.getLastWay().getUniqueId() == segment.getLastWay().getUniqueId()) {
-                    correctSegmentsForThisError.add(segment);
-                }
-            }
+            int numberOfFixes = context.getCorrectSegmentsWithSameEndWays(wrongSegment).size();
 
-            int numberOfFixes = correctSegmentsForThisError.size();
-
-            if (numberOfFixes == 0) {
+            if (numberOfFixes == 0 && wrongSegment.areFixVariantsComputed()) {
                 numberOfFixes = wrongSegment.getFixVariants().size();
             }
             if (numberOfFixes == 0) {
-                for (PTRouteSegment segment : correctSegments) {
-                    if (wrongSegment.getFirstStop().equalsStop(segment.getFirstStop())
-                            && wrongSegment.getLastStop().equalsStop(segment.getLastStop())) {
-                        correctSegmentsForThisError.add(segment);
-                    }
-                }
-                numberOfFixes = correctSegmentsForThisError.size();
+                numberOfFixes = context.getCorrectSegmentsWithSameEndStops(wrongSegment).size();
             }
 
             // change the error message:
-            if (numberOfFixes == 0) {
+            if (numberOfFixes == 0 && !wrongSegment.areFixVariantsComputed()) {
+                builder.message(tr("PT: Problem in the route segment"));
+            } else if (numberOfFixes == 0) {
                 builder.message(tr("PT: Problem in the route segment with no automatic fix"));
             } else if (numberOfFixes == 1) {
                 builder.message(tr("PT: Problem in the route segment with one automatic fix"));
@@ -677,10 +658,11 @@ public class SegmentChecker extends Checker {
      * segment are correctly connected. If they are not, the error will be
      * marked as not fixable.
      * @param builder error builder
+     * @param finder finder of the fix variants in the ways of the route
      */
-    private void findFix(TestError.Builder builder) {
+    private void prepareFix(TestError.Builder builder, Supplier<FixVariantFinder> finder) {
 
-        PTRouteSegment wrongSegment = wrongSegmentBuilders.get(builder);
+        PTRouteSegment wrongSegment = context.getWrongSegment(builder);
         PTWay startPTWay = wrongSegment.getFirstPTWay();
         PTWay endPTWay = wrongSegment.getLastPTWay();
 
@@ -689,62 +671,14 @@ public class SegmentChecker extends Checker {
             return;
         }
 
-        List<List<PTWay>> initialFixes = new ArrayList<>();
-        List<PTWay> initialFix = new ArrayList<>();
-        initialFix.add(startPTWay);
-        initialFixes.add(initialFix);
-
-        List<List<PTWay>> allFixes = findWaysForFix(initialFixes, initialFix, previousNode, endPTWay);
-        for (List<PTWay> fix : allFixes) {
-            if (!fix.isEmpty() && fix.get(fix.size() - 1).equals(endPTWay)) {
-                wrongSegment.addFixVariant(fix);
-            }
-        }
-
-    }
-
-    /**
-     * Recursive method to parse the route segment
-     *
-     * @param allFixes
-     *            all fixes
-     * @param currentFix
-     *            current fix
-     * @param previousNode
-     *            previous node
-     * @param endWay
-     *            end way
-     * @return list of list of ways
-     */
-    private List<List<PTWay>> findWaysForFix(List<List<PTWay>> allFixes, List<PTWay> currentFix, Node previousNode,
-            PTWay endWay) {
-
-        PTWay currentWay = currentFix.get(currentFix.size() - 1);
-        Node nextNode = getOppositeEndNode(currentWay, previousNode);
-
-        List<PTWay> nextWays = this.findNextPTWaysInDirectionOfTravel(currentWay, nextNode);
-
-        if (nextWays.size() > 1) {
-            for (int i = 1; i < nextWays.size(); i++) {
-                List<PTWay> newFix = new ArrayList<>();
-                newFix.addAll(currentFix);
-                newFix.add(nextWays.get(i));
-                allFixes.add(newFix);
-                if (!nextWays.get(i).equals(endWay) && !currentFix.contains(nextWays.get(i))) {
-                    allFixes = findWaysForFix(allFixes, newFix, nextNode, endWay);
-                }
-            }
+        // without a path there is no fix variant, the segment has no automatic fix:
+        if (!finder.get().hasPath(startPTWay, previousNode, endPTWay)) {
+            return;
         }
 
-        if (!nextWays.isEmpty()) {
-            boolean contains = currentFix.contains(nextWays.get(0));
-            currentFix.add(nextWays.get(0));
-            if (!nextWays.get(0).equals(endWay) && !contains) {
-                allFixes = findWaysForFix(allFixes, currentFix, nextNode, endWay);
-            }
-        }
+        // the variants are ranked, the shortest first:
+        wrongSegment.setFixVariantFinder(() -> finder.get().findVariants(startPTWay, previousNode, endPTWay));
 
-        return allFixes;
     }
 
     /**
@@ -761,26 +695,20 @@ public class SegmentChecker extends Checker {
         // layer, clear them:
         ((PTAssistantValidatorTest) testError.getTester()).clearFixVariants();
 
-        PTRouteSegment wrongSegment = wrongSegments.get(testError);
+        ValidationContext context = getContext(testError);
+        PTRouteSegment wrongSegment = context.getWrongSegment(testError);
 
         // 1) try to fix by using the correct segment:
-        List<PTRouteSegment> correctSegmentsForThisError = new ArrayList<>();
-        for (PTRouteSegment segment : correctSegments) {
-            if (wrongSegment.getFirstWay().getUniqueId() == segment.getFirstWay().getUniqueId()
-                    && wrongSegment.getLastWay().getUniqueId() == segment.getLastWay().getUniqueId()) {
-                correctSegmentsForThisError.add(segment);
-            }
-        }
+        List<PTRouteSegment> correctSegmentsForThisError = context.getCorrectSegmentsWithSameEndWays(wrongSegment);
+
+        // the fix variants of the wrong segment are only needed if there is no correct segment:
+        List<List<PTWay>> wrongSegmentFixVariants = correctSegmentsForThisError.isEmpty()
+                ? getFixVariants(wrongSegment) : Collections.emptyList();
 
         // if no correct segment found, apply less strict criteria to look for
         // one:
-        if (correctSegmentsForThisError.isEmpty() && wrongSegment.getFixVariants().isEmpty()) {
-            for (PTRouteSegment segment : correctSegments) {
-                if (wrongSegment.getFirstStop().equalsStop(segment.getFirstStop())
-                        && wrongSegment.getLastStop().equalsStop(segment.getLastStop())) {
-                    correctSegmentsForThisError.add(segment);
-                }
-            }
+        if (correctSegmentsForThisError.isEmpty() && wrongSegmentFixVariants.isEmpty()) {
+            correctSegmentsForThisError = context.getCorrectSegmentsWithSameEndStops(wrongSegment);
             if (!correctSegmentsForThisError.isEmpty()) {
                 // display the notification:
                 if (SwingUtilities.isEventDispatchThread()) {
@@ -814,17 +742,17 @@ public class SegmentChecker extends Checker {
             PTAssistantPlugin.setLastFix(correctSegmentsForThisError.get(0));
             return carryOutSingleFix(testError, correctSegmentsForThisError.get(0).getPTWays());
 
-        } else if (!wrongSegment.getFixVariants().isEmpty()) {
+        } else if (!wrongSegmentFixVariants.isEmpty()) {
             // 2) try to fix using the sorting and removal of existing ways
             // of the wrong segment:
-            if (wrongSegment.getFixVariants().size() > 1) {
-                displayFixVariants(wrongSegment.getFixVariants(), testError);
+            if (wrongSegmentFixVariants.size() > 1) {
+                displayFixVariants(wrongSegmentFixVariants, testError);
                 return null;
             }
 
             PTAssistantPlugin.setLastFix(new PTRouteSegment(wrongSegment.getFirstStop(), wrongSegment.getLastStop(),
-                    wrongSegment.getFixVariants().get(0), (Relation) testError.getPrimitives().iterator().next()));
-            return carryOutSingleFix(testError, wrongSegment.getFixVariants().get(0));
+                    wrongSegmentFixVariants.get(0), (Relation) testError.getPrimitives().iterator().next()));
+            return carryOutSingleFix(testError, wrongSegmentFixVariants.get(0));
         }
 
         // if there is no fix:
@@ -832,6 +760,45 @@ public class SegmentChecker extends Checker {
 
     }
 
+    /**
+     * Returns the fix variants of the wrong segment, computes them in the current thread if necessary
+     *
+     * @param wrongSegment
+     *            wrong route segment
+     * @return the fix variants, the best ranked first
+     */
+    private static List<List<PTWay>> getFixVariants(PTRouteSegment wrongSegment) {
+        DataSet ds = wrongSegment.getRelation() != null ? wrongSegment.getRelation().getDataSet() : null;
+        try {
+            return wrongSegment.computeFixVariants(task -> runWithReadLock(ds, task)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Logging.error(e);
+        } catch (ExecutionException e) {
+            Logging.error(e);
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Runs the task while holding the read lock of the data set, so that the ways of the route are not
+     * changed meanwhile. If the write lock is held by another thread, this is the fix task of the validator,
+     * which has started an update of the data set and waits for this fix. Then the task is run without
+     * the read lock, like the other fixes.
+     */
+    private static void runWithReadLock(DataSet ds, Runnable task) {
+        Lock readLock = ds != null ? ds.getReadLock() : null;
+        if (readLock == null || !readLock.tryLock()) {
+            task.run();
+            return;
+        }
+        try {
+            task.run();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
     /**
      * This is largely a copy of the displayFixVariants() method, adapted for
      * use with the key listener
@@ -943,10 +910,10 @@ public class SegmentChecker extends Checker {
         ChangeCommand changeCommand = new ChangeCommand(originalRelation, modifiedRelation);
         UndoRedoHandler.getInstance().addNoRedraw(changeCommand);
         UndoRedoHandler.getInstance().afterAdd(changeCommand);
-        PTRouteSegment wrongSegment = wrongSegments.get(testError);
-        wrongSegments.remove(testError);
+        ValidationContext context = getContext(testError);
+        PTRouteSegment wrongSegment = context.removeWrongSegment(testError);
         wrongSegment.setPTWays(fix);
-        addCorrectSegment(wrongSegment);
+        context.addCorrectSegment(wrongSegment);
         PTAssistantPlugin.setLastFixNoGui(wrongSegment);
 
         // get ways for the fix:
@@ -1024,7 +991,7 @@ public class SegmentChecker extends Checker {
         Relation originalRelation = (Relation) testError.getPrimitives().iterator().next();
         Relation modifiedRelation = new Relation(originalRelation);
         modifiedRelation.setMembers(getModifiedRelationMembers(testError, fix));
-        wrongSegments.remove(testError);
+        getContext(testError).removeWrongSegment(testError);
         ChangeCommand changeCommand = new ChangeCommand(originalRelation, modifiedRelation);
         return changeCommand;
     }
@@ -1043,7 +1010,7 @@ public class SegmentChecker extends Checker {
      *         relation
      */
     private static List<RelationMember> getModifiedRelationMembers(TestError testError, List<PTWay> fix) {
-        PTRouteSegment wrongSegment = wrongSegments.get(testError);
+        PTRouteSegment wrongSegment = getContext(testError).getWrongSegment(testError);
         Relation originalRelation = (Relation) testError.getPrimitives().iterator().next();
 
         // copy stops first:
@@ -1063,13 +1030,14 @@ public class SegmentChecker extends Checker {
         return modifiedRelationMembers;
     }
 
-    public static void carryOutRepeatLastFix(PTRouteSegment segment) {
+    public static void carryOutRepeatLastFix(ValidationContext context, PTRouteSegment segment) {
 
         List<TestError> wrongSegmentsToRemove = new ArrayList<>();
 
         // find all wrong ways that have the same segment:
-        for (TestError testError : wrongSegments.keySet()) {
-            PTRouteSegment wrongSegment = wrongSegments.get(testError);
+        for (Entry<TestError, PTRouteSegment> entry : context.getWrongSegments().entrySet()) {
+            TestError testError = entry.getKey();
+            PTRouteSegment wrongSegment = entry.getValue();
             if (wrongSegment.getFirstWay() == segment.getFirstWay()
                     && wrongSegment.getLastWay() == segment.getLastWay()) {
                 // modify the route:
@@ -1094,18 +1062,22 @@ public class SegmentChecker extends Checker {
 
         // update wrong segments:
         for (TestError testError : wrongSegmentsToRemove) {
-            wrongSegments.remove(testError);
+            context.removeWrongSegment(testError);
         }
 
     }
 
     /**
-     * Resets the static list variables (used for unit tests and in Test.startTest() method)
+     * Returns the builders of the stop-by-stop errors that were created by this checker
+     *
+     * @return the builders and their wrong route segments, in the order in which they were created
      */
-    protected static void reset() {
-        correctSegments.clear();
-        wrongSegments.clear();
-        wrongSegmentBuilders.clear();
+    public Map<TestError.Builder, PTRouteSegment> getWrongSegmentBuilders() {
+        Map<TestError.Builder, PTRouteSegment> result = new LinkedHashMap<>();
+        for (TestError.Builder builder : createdBuilders) {
+            result.put(builder, context.getWrongSegment(builder));
+        }
+        return result;
     }
 
     public PTRouteDataManager getManager() {
@@ -1116,6 +1088,17 @@ public class SegmentChecker extends Checker {
         this.manager = manager;
     }
 
+    /**
+     * Starts a timer for a stage of the validation of the route, see {@link PTAssistantValidatorTest#startTimer}
+     *
+     * @param stage name of the stage, see {@link ValidationStatistics}
+     * @return the timer, to be stopped at the end of the stage
+     */
+    private StageTimer startTimer(String stage) {
+        return test instanceof PTAssistantValidatorTest
+            ? ((PTAssistantValidatorTest) test).startTimer(stage, relation) : StageTimer.NONE;
+    }
+
     public StopToWayAssigner getAssigner() {
         return assigner;
     }
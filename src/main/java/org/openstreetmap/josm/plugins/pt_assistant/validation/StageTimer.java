@@ -0,0 +1,53 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTFlightRecorder;
+
+/**
+ * Measures one invocation of a stage of the {@link PTAssistantValidatorTest}: the time is recorded in the
+ * {@link ValidationStatistics} (if statistics are collected) and a JFR event is emitted (if it is enabled).
+ */
+final class StageTimer {
+
+    /* timer used if neither statistics nor JFR events are collected */
+    static final StageTimer NONE = new StageTimer(null, null, 0, PTFlightRecorder.NONE);
+
+    private final ValidationStatistics statistics;
+    private final String stage;
+    private final long start;
+    private final PTFlightRecorder.Span span;
+
+    private StageTimer(ValidationStatistics statistics, String stage, long start, PTFlightRecorder.Span span) {
+        this.statistics = statistics;
+        this.stage = stage;
+        this.start = start;
+        this.span = span;
+    }
+
+    /**
+     * Starts the timer of a stage
+     *
+     * @param statistics statistics of the current run, null if no statistics are collected
+     * @param stage name of the stage, see {@link ValidationStatistics}
+     * @param route the validated route, null if the stage is not specific to a route
+     * @return the started timer
+     */
+    static StageTimer start(ValidationStatistics statistics, String stage, Relation route) {
+        PTFlightRecorder.Span span = PTFlightRecorder.begin(stage, route);
+        if (statistics == null && span == PTFlightRecorder.NONE) {
+            return NONE;
+        }
+        return new StageTimer(statistics, stage, statistics != null ? System.nanoTime() : 0, span);
+    }
+
+    /**
+     * Stops the timer, records the time of the stage and commits the JFR event
+     */
+    void stop() {
+        if (statistics != null) {
+            statistics.record(stage, System.nanoTime() - start);
+        }
+        span.close();
+    }
+}
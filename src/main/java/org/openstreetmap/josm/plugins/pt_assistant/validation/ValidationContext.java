@@ -0,0 +1,247 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteSegment;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
+
+/**
+ * The state of one validation run of the {@link PTAssistantValidatorTest} that is shared between
+ * the checks of different routes: the route segments that have been found correct, and the wrong
+ * segments of the stop-by-stop errors. The wrong segments are kept after the run, because they
+ * are needed to fix the errors.
+ *
+ * The correct segments are indexed by their first and last way, by their first and last stop and by
+ * the sequence of their ways, so that they can be looked up without scanning all of them.
+ *
+ * All methods are thread-safe, so the routes of a run can be validated concurrently.
+ */
+public final class ValidationContext {
+
+    /* PTRouteSegments that have been validated and are correct */
+    private final List<PTRouteSegment> correctSegments = new ArrayList<>();
+
+    /* indices of the correct segments by the ids of their first and last way */
+    private final Map<SegmentKey, List<Integer>> correctSegmentsByWays = new HashMap<>();
+
+    /* indices of the correct segments by the stop positions and platforms of their first and last stop */
+    private final Map<SegmentKey, List<Integer>> correctSegmentsByStops = new HashMap<>();
+
+    /* indices of the correct segments by the hash of the sequence of their ways */
+    private final Map<Long, List<Integer>> correctSegmentsByFingerprint = new HashMap<>();
+
+    /* PTRouteSegments that are wrong, stored in case the user calls the fix */
+    private final Map<TestError, PTRouteSegment> wrongSegments = new HashMap<>();
+
+    /* builders of the stop-by-stop errors, the errors are created at the end of the run */
+    private final Map<TestError.Builder, PTRouteSegment> wrongSegmentBuilders = new LinkedHashMap<>();
+
+    /**
+     * Returns the number of route segments that have been already successfully verified
+     *
+     * @return the number of route segments
+     */
+    public synchronized int getCorrectSegmentCount() {
+        return correctSegments.size();
+    }
+
+    /**
+     * Returns the route segments that have been already successfully verified
+     *
+     * @return a copy of the list of correct route segments
+     */
+    public synchronized List<PTRouteSegment> getCorrectSegments() {
+        return new ArrayList<>(correctSegments);
+    }
+
+    /**
+     * Adds the given correct segment to the list of correct segments without
+     * checking its correctness. Segments equal to an existing one are ignored.
+     *
+     * @param segment to add to the list of correct segments
+     */
+    public synchronized void addCorrectSegment(PTRouteSegment segment) {
+        long fingerprint = segment.getWaySequenceHash();
+        List<Integer> sameFingerprint = correctSegmentsByFingerprint.get(fingerprint);
+        if (sameFingerprint != null) {
+            for (int index : sameFingerprint) {
+                if (correctSegments.get(index).equalsRouteSegment(segment)) {
+                    return;
+                }
+            }
+        }
+
+        int index = correctSegments.size();
+        correctSegments.add(segment);
+        correctSegmentsByFingerprint.computeIfAbsent(fingerprint, it -> new ArrayList<>(1)).add(index);
+        Way firstWay = segment.getFirstWay();
+        Way lastWay = segment.getLastWay();
+        if (firstWay != null && lastWay != null) {
+            correctSegmentsByWays.computeIfAbsent(new SegmentKey(firstWay.getUniqueId(), lastWay.getUniqueId()),
+                    it -> new ArrayList<>(1)).add(index);
+        }
+        for (OsmPrimitive first : getStopPrimitives(segment.getFirstStop())) {
+            for (OsmPrimitive last : getStopPrimitives(segment.getLastStop())) {
+                correctSegmentsByStops.computeIfAbsent(new SegmentKey(first, last), it -> new ArrayList<>(1)).add(index);
+            }
+        }
+    }
+
+    /**
+     * Returns the correct route segments with the same first and last way as the given segment
+     *
+     * @param segment route segment
+     * @return the correct route segments, in the order in which they were added
+     */
+    public synchronized List<PTRouteSegment> getCorrectSegmentsWithSameEndWays(PTRouteSegment segment) {
+        Way firstWay = segment.getFirstWay();
+        Way lastWay = segment.getLastWay();
+        if (firstWay == null || lastWay == null) {
+            return new ArrayList<>();
+        }
+        List<Integer> indices = correctSegmentsByWays.get(new SegmentKey(firstWay.getUniqueId(), lastWay.getUniqueId()));
+        List<PTRouteSegment> result = new ArrayList<>();
+        if (indices != null) {
+            for (int index : indices) {
+                result.add(correctSegments.get(index));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the correct route segments whose first and last stops are equal (see {@link PTStop#equalsStop})
+     * to the first and last stop of the given segment
+     *
+     * @param segment route segment
+     * @return the correct route segments, in the order in which they were added
+     */
+    public synchronized List<PTRouteSegment> getCorrectSegmentsWithSameEndStops(PTRouteSegment segment) {
+        SortedSet<Integer> indices = new TreeSet<>();
+        for (OsmPrimitive first : getStopPrimitives(segment.getFirstStop())) {
+            for (OsmPrimitive last : getStopPrimitives(segment.getLastStop())) {
+                List<Integer> sameStops = correctSegmentsByStops.get(new SegmentKey(first, last));
+                if (sameStops != null) {
+                    indices.addAll(sameStops);
+                }
+            }
+        }
+        List<PTRouteSegment> result = new ArrayList<>(indices.size());
+        for (int index : indices) {
+            result.add(correctSegments.get(index));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the wrong route segment of the given error
+     *
+     * @param error test error
+     * @return the wrong route segment, or null if there is none for the error
+     */
+    public synchronized PTRouteSegment getWrongSegment(TestError error) {
+        return wrongSegments.get(error);
+    }
+
+    /**
+     * Returns all errors with their wrong route segments
+     *
+     * @return a copy of the map of errors to wrong route segments
+     */
+    public synchronized Map<TestError, PTRouteSegment> getWrongSegments() {
+        return new HashMap<>(wrongSegments);
+    }
+
+    synchronized void putWrongSegment(TestError error, PTRouteSegment segment) {
+        wrongSegments.put(error, segment);
+    }
+
+    synchronized PTRouteSegment removeWrongSegment(TestError error) {
+        return wrongSegments.remove(error);
+    }
+
+    /**
+     * Returns the wrong route segment of the given error builder
+     *
+     * @param builder builder of a stop-by-stop error
+     * @return the wrong route segment, or null if there is none for the builder
+     */
+    synchronized PTRouteSegment getWrongSegment(TestError.Builder builder) {
+        return wrongSegmentBuilders.get(builder);
+    }
+
+    synchronized void putWrongSegmentBuilder(TestError.Builder builder, PTRouteSegment segment) {
+        wrongSegmentBuilders.put(builder, segment);
+    }
+
+    synchronized void putWrongSegmentBuilders(Map<TestError.Builder, PTRouteSegment> builders) {
+        wrongSegmentBuilders.putAll(builders);
+    }
+
+    synchronized boolean hasWrongSegmentBuilders() {
+        return !wrongSegmentBuilders.isEmpty();
+    }
+
+    /**
+     * Returns the builders of the stop-by-stop errors
+     *
+     * @return a copy of the map of builders to wrong route segments, in the order in which they were added
+     */
+    synchronized Map<TestError.Builder, PTRouteSegment> getWrongSegmentBuilders() {
+        return new LinkedHashMap<>(wrongSegmentBuilders);
+    }
+
+    private static List<OsmPrimitive> getStopPrimitives(PTStop stop) {
+        List<OsmPrimitive> primitives = new ArrayList<>(2);
+        if (stop != null) {
+            if (stop.getStopPosition() != null) {
+                primitives.add(stop.getStopPosition());
+            }
+            if (stop.getPlatform() != null && stop.getPlatform() != stop.getStopPosition()) {
+                primitives.add(stop.getPlatform());
+            }
+        }
+        return primitives;
+    }
+
+    /**
+     * The pair of the first and the last element of a route segment
+     */
+    private static final class SegmentKey {
+        private final Object first;
+        private final Object last;
+
+        SegmentKey(Object first, Object last) {
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SegmentKey)) {
+                return false;
+            }
+            SegmentKey other = (SegmentKey) obj;
+            return first.equals(other.first) && last.equals(other.last);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(first, last);
+        }
+    }
+}
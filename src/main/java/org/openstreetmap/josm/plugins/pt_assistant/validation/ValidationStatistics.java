@@ -0,0 +1,200 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import org.openstreetmap.josm.data.osm.DefaultNameFormatter;
+import org.openstreetmap.josm.data.osm.Relation;
+
+/**
+ * Timers and invocation counters of the stages of one run of the {@link PTAssistantValidatorTest},
+ * and the time needed for each route. All methods are thread-safe.
+ *
+ * The statistics are only collected if {@link org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties#VALIDATION_STATISTICS}
+ * is enabled. The statistics of the last run are available from {@link #getLastRun()}.
+ */
+public final class ValidationStatistics {
+
+    /* names of the measured stages */
+    public static final String PREFETCH_INCOMPLETE_MEMBERS = "IncompleteMembersPrefetcher.prefetch";
+    public static final String ROUTE_TOPOLOGY = "RouteTopology.of";
+    public static final String WAY_DIRECTION_TEST = "WayChecker.performDirectionTest";
+    public static final String WAY_ROAD_TYPE_TEST = "WayChecker.performRoadTypeTest";
+    public static final String ROUTE_DATA_MANAGER = "PTRouteDataManager.<init>";
+    /* measured where the checkers assign the stops, so it is part of the time of their stages */
+    public static final String STOP_TO_WAY_ASSIGNMENT = "StopToWayAssigner.get";
+    public static final String FROM_TO_TAGS_TEST = "RouteChecker.performFromToTagsTest";
+    public static final String FIRST_LAST_WAY_STOP_TEST = "RouteChecker.performFirstLastWayStopTest";
+    public static final String SORTING_TEST = "RouteChecker.performSortingTest";
+    public static final String END_STOP_TESTS = "SegmentChecker.performFirstStopTest/performLastStopTest";
+    public static final String STOP_NOT_SERVED_TEST = "SegmentChecker.performStopNotServedTest";
+    public static final String STOP_BY_STOP_TEST = "SegmentChecker.performStopByStopTest";
+    public static final String PREPARE_FIXES = "SegmentChecker.prepareFixes";
+    public static final String STORE_CORRECT_SEGMENTS = "PTAssistantValidatorTest.storeCorrectRouteSegments";
+    public static final String MODIFY_ERROR_MESSAGES = "SegmentChecker.modifyStopByStopErrorMessages";
+
+    private static volatile ValidationStatistics lastRun;
+
+    private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+    private final List<RouteTiming> routes = new ArrayList<>();
+
+    /**
+     * Returns the statistics of the last validation run in which statistics were collected
+     *
+     * @return the statistics, or null if no statistics have been collected yet
+     */
+    public static ValidationStatistics getLastRun() {
+        return lastRun;
+    }
+
+    static void setLastRun(ValidationStatistics statistics) {
+        lastRun = statistics;
+    }
+
+    /**
+     * Records one invocation of the given stage
+     *
+     * @param stage name of the stage
+     * @param nanos time needed, in nanoseconds
+     */
+    public void record(String stage, long nanos) {
+        Stage counter = stages.computeIfAbsent(stage, it -> new Stage());
+        counter.invocations.increment();
+        counter.nanos.add(nanos);
+    }
+
+    /**
+     * Records the time needed for the validation of the given route
+     *
+     * @param route route relation
+     * @param nanos time needed, in nanoseconds
+     */
+    public void recordRoute(Relation route, long nanos) {
+        RouteTiming timing = new RouteTiming(route.getUniqueId(),
+                route.getDisplayName(DefaultNameFormatter.getInstance()), route.getMembersCount(), nanos);
+        synchronized (routes) {
+            routes.add(timing);
+        }
+    }
+
+    /**
+     * Returns the number of invocations of the given stage
+     *
+     * @param stage name of the stage
+     * @return the number of invocations
+     */
+    public long getInvocationCount(String stage) {
+        Stage counter = stages.get(stage);
+        return counter != null ? counter.invocations.sum() : 0;
+    }
+
+    /**
+     * Returns the total time needed by the given stage
+     *
+     * @param stage name of the stage
+     * @return the sum of the time of all invocations, in nanoseconds
+     */
+    public long getTotalNanos(String stage) {
+        Stage counter = stages.get(stage);
+        return counter != null ? counter.nanos.sum() : 0;
+    }
+
+    /**
+     * Returns the number of routes whose validation time has been recorded
+     *
+     * @return the number of routes
+     */
+    public int getRouteCount() {
+        synchronized (routes) {
+            return routes.size();
+        }
+    }
+
+    /**
+     * Returns the routes which needed the most time
+     *
+     * @param n maximum number of routes
+     * @return the slowest routes, the slowest first
+     */
+    public List<RouteTiming> getSlowestRoutes(int n) {
+        synchronized (routes) {
+            return routes.stream()
+                .sorted(Comparator.comparingLong(RouteTiming::getNanos).reversed())
+                .limit(n)
+                .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Returns a human readable report of the statistics: the stages ordered by total time and the slowest routes
+     *
+     * @param slowestRouteCount the number of slowest routes that are listed
+     * @return the report, one line per stage and route
+     */
+    public String getReport(int slowestRouteCount) {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format(Locale.ROOT, "%-60s %10s %12s %12s%n", "Stage", "Calls", "Total ms", "Average us"));
+        stages.entrySet().stream()
+            .sorted(Comparator.comparingLong((Map.Entry<String, Stage> it) -> it.getValue().nanos.sum()).reversed())
+            .forEach(it -> {
+                long invocations = it.getValue().invocations.sum();
+                long nanos = it.getValue().nanos.sum();
+                report.append(String.format(Locale.ROOT, "%-60s %10d %12.1f %12.1f%n", it.getKey(), invocations,
+                        nanos / 1e6, invocations > 0 ? nanos / 1e3 / invocations : 0));
+            });
+        List<RouteTiming> slowestRoutes = getSlowestRoutes(slowestRouteCount);
+        if (!slowestRoutes.isEmpty()) {
+            report.append(String.format(Locale.ROOT, "%nSlowest %d of %d routes:%n", slowestRoutes.size(), getRouteCount()));
+            for (RouteTiming route : slowestRoutes) {
+                report.append(String.format(Locale.ROOT, "%12.1f ms  r%d (%d members) %s%n", route.getNanos() / 1e6,
+                        route.getId(), route.getMemberCount(), route.getName()));
+            }
+        }
+        return report.toString();
+    }
+
+    private static final class Stage {
+        private final LongAdder invocations = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+    }
+
+    /**
+     * The time needed for the validation of a route
+     */
+    public static final class RouteTiming {
+        private final long id;
+        private final String name;
+        private final int memberCount;
+        private final long nanos;
+
+        RouteTiming(long id, String name, int memberCount, long nanos) {
+            this.id = id;
+            this.name = name;
+            this.memberCount = memberCount;
+            this.nanos = nanos;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMemberCount() {
+            return memberCount;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+}
@@ -5,8 +5,11 @@ import static org.openstreetmap.josm.tools.I18n.tr;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import org.openstreetmap.josm.command.ChangeCommand;
@@ -21,6 +24,7 @@ import org.openstreetmap.josm.data.validation.Severity;
 import org.openstreetmap.josm.data.validation.Test;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.plugins.pt_assistant.data.PTStop;
+import org.openstreetmap.josm.plugins.pt_assistant.data.RouteTopology;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.WayUtils;
 
@@ -46,10 +50,11 @@ public class WayChecker extends Checker {
             return;
         }
 
-        for (RelationMember rm : relation.getMembers()) {
-            if (RouteUtils.isPTWay(rm) && rm.getType().equals(OsmPrimitiveType.WAY)) {
+        RouteTopology topology = getTopology();
+        for (int i = 0; i < topology.getWayCount(); i++) {
+            if (!topology.isNested(i)) {
 
-                Way way = rm.getWay();
+                Way way = topology.getWay(i);
                 // at this point, the relation has already been checked to
                 // be a route of public_transport:version 2
 
@@ -136,20 +141,7 @@ public class WayChecker extends Checker {
 
     protected void performDirectionTest() {
 
-        List<Way> waysToCheck = new ArrayList<>();
-
-        for (RelationMember rm : relation.getMembers()) {
-            if (RouteUtils.isPTWay(rm)) {
-                if (rm.isWay()) {
-                    waysToCheck.add(rm.getWay());
-                } else {
-                    Relation nestedRelation = rm.getRelation();
-                    for (RelationMember nestedRelationMember : nestedRelation.getMembers()) {
-                        waysToCheck.add(nestedRelationMember.getWay());
-                    }
-                }
-            }
-        }
+        List<Way> waysToCheck = getTopology().getWays();
 
         if (waysToCheck.size() <= 1) {
             return;
@@ -196,22 +188,33 @@ public class WayChecker extends Checker {
             listOfSets.add(primitivesToReport);
         }
 
-        boolean changed = true;
-        while (changed) {
-            changed = false;
-            for (int i = 0; i < listOfSets.size(); i++) {
-                for (int j = i; j < listOfSets.size(); j++) {
-                    if (i != j && WayUtils.isAnyWayTouchingAnyOtherWay(listOfSets.get(i), listOfSets.get(j))) {
-                        listOfSets.get(i).addAll(listOfSets.get(j));
-                        listOfSets.remove(j);
-                        j = listOfSets.size();
-                        changed = true;
+        // sets whose ways touch each other (see WayUtils.isTouchingOtherWay) are reported together,
+        // they are found by a union-find over the sets keyed by the end nodes of their ways:
+        int[] parents = new int[listOfSets.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+        Map<Node, Integer> setOfEndNode = new HashMap<>();
+        for (int i = 0; i < listOfSets.size(); i++) {
+            for (Way way : listOfSets.get(i)) {
+                for (Node endNode : new Node[] {way.firstNode(), way.lastNode()}) {
+                    if (endNode != null) {
+                        Integer other = setOfEndNode.putIfAbsent(endNode, i);
+                        if (other != null) {
+                            union(parents, other, i);
+                        }
                     }
                 }
             }
         }
 
-        for (Set<Way> currentSet : listOfSets) {
+        // the merged sets in the order of their first problematic way:
+        Map<Integer, Set<Way>> mergedSets = new LinkedHashMap<>();
+        for (int i = 0; i < listOfSets.size(); i++) {
+            mergedSets.computeIfAbsent(find(parents, i), it -> new HashSet<>()).addAll(listOfSets.get(i));
+        }
+
+        for (Set<Way> currentSet : mergedSets.values()) {
             TestError.Builder builder = TestError.builder(this.test, Severity.WARNING, PTAssistantValidatorTest.ERROR_CODE_DIRECTION);
             builder.message(tr("PT: Route passes a oneway road in the wrong direction"));
             builder.primitives(primitives);
@@ -222,6 +225,22 @@ public class WayChecker extends Checker {
 
     }
 
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parents, int i, int j) {
+        int rootI = find(parents, i);
+        int rootJ = find(parents, j);
+        if (rootI != rootJ) {
+            parents[Math.max(rootI, rootJ)] = Math.min(rootI, rootJ);
+        }
+    }
+
     /**
      * Checks if the current way touches its neighboring ways correctly
      *
@@ -341,42 +360,17 @@ public class WayChecker extends Checker {
 
         List<Way> resultList = new ArrayList<>();
 
-        if (node != null) {
-            List<OsmPrimitive> nodeReferrers = node.getReferrers();
-
-            for (OsmPrimitive referrer : nodeReferrers) {
-                if (referrer.getType().equals(OsmPrimitiveType.WAY)) {
-                    Way neighborWay = (Way) referrer;
-                    if (neighborWay != way && containsWay(neighborWay)) {
-                        resultList.add(neighborWay);
-                    }
-                }
+        RouteTopology topology = getTopology();
+        for (int i : topology.getWaysAt(node)) {
+            Way neighborWay = topology.getWay(i);
+            if (neighborWay != way && !topology.isNested(i) && !resultList.contains(neighborWay)) {
+                resultList.add(neighborWay);
             }
         }
 
         return resultList;
     }
 
-    /**
-     * Checks if the relation of this WayChecker contains the given way
-     *
-     * @param way way
-     * @return {@code true} if the relation of this WayChecker contains the given way
-     */
-    private boolean containsWay(Way way) {
-
-        List<RelationMember> members = relation.getMembers();
-
-        for (RelationMember rm : members) {
-            if (rm.isWay() && rm.getWay() == way) {
-                return true;
-            }
-        }
-
-        return false;
-
-    }
-
     protected static Command fixErrorByRemovingWay(TestError testError) {
 
         if (testError.getCode() != PTAssistantValidatorTest.ERROR_CODE_ROAD_TYPE
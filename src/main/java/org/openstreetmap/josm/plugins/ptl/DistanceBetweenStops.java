@@ -19,6 +19,7 @@ import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.gui.ExtendedDialog;
 import org.openstreetmap.josm.gui.MainApplication;
 import org.openstreetmap.josm.gui.dialogs.relation.sort.WayConnectionType;
@@ -44,7 +45,8 @@ public class DistanceBetweenStops extends JosmAction {
         final List<Node> stopNodes = new ArrayList<>();
         final List<RelationMember> routeSegments = new ArrayList<>();
         final List<Node> routeNodes = new ArrayList<>();
-        for (final RelationMember member : route.getMembers()) {
+        for (int i = 0; i < route.getMembersCount(); i++) {
+            final RelationMember member = route.getMember(i);
             if (member.hasRole("stop", "stop_exit_only", "stop_entry_only") && OsmPrimitiveType.NODE.equals(member.getType())) {
                 stopNodes.add(member.getNode());
             } else if (member.hasRole("") && OsmPrimitiveType.WAY.equals(member.getType())) {
@@ -56,12 +58,14 @@ public class DistanceBetweenStops extends JosmAction {
         final List<WayConnectionType> links = connectionTypeCalculator.updateLinks(routeSegments);
         for (int i = 0; i < links.size(); i++) {
             final WayConnectionType link = links.get(i);
-            final List<Node> nodes = routeSegments.get(i).getWay().getNodes();
-            if (link.direction == WayConnectionType.Direction.BACKWARD) {
-                Collections.reverse(nodes);
+            if (link.direction != WayConnectionType.Direction.BACKWARD && link.direction != WayConnectionType.Direction.FORWARD) {
+                continue;
             }
-            if (link.direction == WayConnectionType.Direction.BACKWARD || link.direction == WayConnectionType.Direction.FORWARD) {
-                routeNodes.addAll(link.linkPrev ? nodes.subList(1, nodes.size()) : nodes);
+            // the nodes are read in the direction of travel, without copying the node list of the way:
+            final Way way = routeSegments.get(i).getWay();
+            final int nodesCount = way.getNodesCount();
+            for (int j = link.linkPrev ? 1 : 0; j < nodesCount; j++) {
+                routeNodes.add(way.getNode(link.direction == WayConnectionType.Direction.FORWARD ? j : nodesCount - 1 - j));
             }
         }
 
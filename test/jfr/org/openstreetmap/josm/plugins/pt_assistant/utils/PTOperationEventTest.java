@@ -0,0 +1,61 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class PTOperationEventTest {
+
+    private static final String EVENT_NAME = "org.openstreetmap.josm.plugins.pt_assistant.Operation";
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    @Test
+    public void testRecording() throws IOException {
+        assertTrue(PTFlightRecorder.isAvailable());
+
+        Relation route = new Relation(42);
+        route.addMember(new RelationMember("stop", new Node(1)));
+        route.addMember(new RelationMember("platform", new Node(2)));
+
+        Path file = Files.createTempFile("pt_assistant", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(EVENT_NAME);
+            recording.start();
+            try (PTFlightRecorder.Span span = PTFlightRecorder.begin("test", route)) {
+                assertNotSame(PTFlightRecorder.NONE, span);
+            }
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(it -> EVENT_NAME.equals(it.getEventType().getName()))
+                .collect(Collectors.toList());
+            assertEquals(1, events.size());
+            assertEquals("test", events.get(0).getString("operation"));
+            assertEquals(42, events.get(0).getLong("relationId"));
+            assertEquals(2, events.get(0).getInt("memberCount"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
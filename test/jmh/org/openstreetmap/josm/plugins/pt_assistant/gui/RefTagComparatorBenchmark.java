@@ -0,0 +1,119 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.gui;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the sorting of the route refs of a stop served by many routes, with the regular expression
+ * used before by the {@link PTAssistantPaintVisitor.RefTagComparator}, with the comparator and with
+ * the pre-parsed sort keys of {@link PTAssistantPaintVisitor.RefTagComparator#sort(List)}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RefTagComparatorBenchmark {
+
+    private static final Pattern LEADING_UNSIGNED_INT_PATTERN = Pattern.compile("^([0-9]+).*$");
+
+    /* the comparator as it was implemented with a regular expression */
+    private static final Comparator<String> REGEX_COMPARATOR = (s1, s2) -> {
+        final boolean s1Empty = s1 == null || s1.isEmpty();
+        final boolean s2Empty = s2 == null || s2.isEmpty();
+        if (s1Empty || s2Empty) {
+            return (s1Empty ? -1 : 0) + (s2Empty ? 1 : 0);
+        }
+        final Integer s1Number = getLeadingInt(s1);
+        final Integer s2Number = getLeadingInt(s2);
+        if (s1Number != null && s2Number != null) {
+            return Integer.compare(s1Number, s2Number);
+        } else if (s1Number != null) {
+            return -1;
+        } else if (s2Number != null) {
+            return 1;
+        }
+        return s1.compareTo(s2);
+    };
+
+    @Param({"30", "60"})
+    public int routeCount;
+
+    private List<String> refs;
+
+    private static Integer getLeadingInt(final CharSequence stringValue) {
+        final Matcher matcher = LEADING_UNSIGNED_INT_PATTERN.matcher(stringValue);
+        if (matcher.matches()) {
+            try {
+                return Integer.parseInt(matcher.group(1));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Setup(Level.Trial)
+    public void generateRefs() {
+        Random random = new Random(42);
+        refs = new ArrayList<>(routeCount);
+        for (int i = 0; i < routeCount; i++) {
+            switch (i % 4) {
+            case 0:
+                refs.add(Integer.toString(1 + random.nextInt(200)));
+                break;
+            case 1:
+                refs.add((1 + random.nextInt(99)) + "E");
+                break;
+            case 2:
+                refs.add("N" + (1 + random.nextInt(20)));
+                break;
+            default:
+                refs.add(Integer.toString(100 + random.nextInt(900)));
+            }
+        }
+        Collections.shuffle(refs, random);
+    }
+
+    @Benchmark
+    public List<String> regex() {
+        List<String> sorted = new ArrayList<>(refs);
+        sorted.sort(REGEX_COMPARATOR);
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> comparator() {
+        List<String> sorted = new ArrayList<>(refs);
+        sorted.sort(new PTAssistantPaintVisitor.RefTagComparator());
+        return sorted;
+    }
+
+    @Benchmark
+    public List<String> sortKeys() {
+        List<String> sorted = new ArrayList<>(refs);
+        PTAssistantPaintVisitor.RefTagComparator.sort(sorted);
+        return sorted;
+    }
+}
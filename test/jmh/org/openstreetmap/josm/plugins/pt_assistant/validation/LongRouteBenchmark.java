@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.plugins.pt_assistant.SyntheticNetworkGenerator;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteDataManager;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+
+/**
+ * Measures the validation of a single long route, and the navigation in its {@link PTRouteDataManager}
+ * as done by the stop-by-stop test for each segment between two stops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class LongRouteBenchmark {
+
+    @Param({"100", "300", "1000"})
+    public int routeLength;
+
+    private DataSet ds;
+    private Relation route;
+
+    @Setup(Level.Trial)
+    public void generateRoute() {
+        BatchValidator.initHeadless();
+        PTProperties.INCREMENTAL_VALIDATION.put(false);
+        ds = new SyntheticNetworkGenerator()
+            .gridSize(routeLength / 2 + 2)
+            .routes(1)
+            .routeLength(routeLength)
+            .roundaboutInterval(0)
+            .generate();
+        route = ds.getRelations().stream().filter(RouteUtils::isVersionTwoPTRoute).findFirst().get();
+    }
+
+    @Benchmark
+    public void segments(Blackhole blackhole) {
+        PTRouteDataManager manager = new PTRouteDataManager(route);
+        List<PTWay> ptways = manager.getPTWays();
+        // a segment for each stop, which is on every other way:
+        for (int i = 0; i + 2 < ptways.size(); i += 2) {
+            Way start = ptways.get(i).getWays().get(0);
+            Way end = ptways.get(i + 2).getWays().get(0);
+            for (PTWay ptway : manager.getPTWaysBetween(start, end)) {
+                blackhole.consume(manager.getNextPTWay(ptway));
+            }
+        }
+    }
+
+    @Benchmark
+    public PTAssistantValidatorTest validate() {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        return test;
+    }
+}
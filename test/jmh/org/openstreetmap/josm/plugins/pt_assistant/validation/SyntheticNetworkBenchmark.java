@@ -0,0 +1,64 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.plugins.pt_assistant.SyntheticNetworkGenerator;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+
+/**
+ * Measures the time of a complete validation of a generated network with many routes,
+ * see {@link SyntheticNetworkGenerator}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class SyntheticNetworkBenchmark {
+
+    @Param({"1000", "10000"})
+    public int routes;
+
+    @Param({"false", "true"})
+    public boolean parallel;
+
+    private DataSet ds;
+
+    @Setup(Level.Trial)
+    public void generateNetwork() {
+        BatchValidator.initHeadless();
+        PTProperties.PARALLEL_VALIDATION.put(parallel);
+        PTProperties.INCREMENTAL_VALIDATION.put(false);
+        ds = new SyntheticNetworkGenerator()
+            .gridSize(200)
+            .routes(routes)
+            .gapProbability(0.1)
+            .sortingErrorProbability(0.1)
+            .generate();
+    }
+
+    @Benchmark
+    public PTAssistantValidatorTest validate() {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        return test;
+    }
+}
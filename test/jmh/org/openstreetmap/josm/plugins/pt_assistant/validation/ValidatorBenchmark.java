@@ -0,0 +1,131 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.IllegalDataException;
+import org.openstreetmap.josm.io.OsmReader;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteDataManager;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayAssigner;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayCache;
+
+/**
+ * Measures the throughput of the stages of the validation of the route relations in the fixtures of
+ * {@code test/data}. Each benchmark method runs one stage on all version 2 routes of the fixture.
+ * Run with {@code ./gradlew jmh}, the allocation rate is reported by the GC profiler ({@code -prof gc}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ValidatorBenchmark {
+
+    @Param({"segment-test.osm", "DL131_before.osm", "duesseldorf_roundabout.osm"})
+    public String fixture;
+
+    private DataSet ds;
+    private final List<Relation> routes = new ArrayList<>();
+    private final List<PTRouteDataManager> managers = new ArrayList<>();
+    private final List<StopToWayAssigner> assigners = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void loadFixture() throws IOException, IllegalDataException {
+        BatchValidator.initHeadless();
+        try (InputStream in = ValidatorBenchmark.class.getResourceAsStream("/" + fixture)) {
+            ds = OsmReader.parseDataSet(in, NullProgressMonitor.INSTANCE);
+        }
+        for (Relation r : ds.getRelations()) {
+            if (RouteUtils.isVersionTwoPTRoute(r) && !r.hasIncompleteMembers()) {
+                PTRouteDataManager manager = new PTRouteDataManager(r);
+                routes.add(r);
+                managers.add(manager);
+                assigners.add(new StopToWayAssigner(manager.getPTWays()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void routeDataManager(Blackhole blackhole) {
+        for (Relation r : routes) {
+            blackhole.consume(new PTRouteDataManager(r));
+        }
+    }
+
+    @Benchmark
+    public void stopToWayAssignerCold(Blackhole blackhole) {
+        StopToWayCache.getCache(ds).clear();
+        for (PTRouteDataManager manager : managers) {
+            blackhole.consume(new StopToWayAssigner(manager.getPTWays()).get(manager.getPTStops()));
+        }
+    }
+
+    @Benchmark
+    public void stopToWayAssignerCached(Blackhole blackhole) {
+        for (PTRouteDataManager manager : managers) {
+            blackhole.consume(new StopToWayAssigner(manager.getPTWays()).get(manager.getPTStops()));
+        }
+    }
+
+    @Benchmark
+    public void sortingTest(Blackhole blackhole) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        for (int i = 0; i < routes.size(); i++) {
+            RouteChecker routeChecker = new RouteChecker(routes.get(i), test);
+            routeChecker.setManager(managers.get(i));
+            routeChecker.setAssigner(assigners.get(i));
+            routeChecker.performSortingTest();
+            blackhole.consume(routeChecker.getErrors());
+        }
+    }
+
+    @Benchmark
+    public void stopByStopTest(Blackhole blackhole) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        ValidationContext context = new ValidationContext();
+        for (int i = 0; i < routes.size(); i++) {
+            blackhole.consume(stopByStopTest(test, context, i));
+        }
+    }
+
+    @Benchmark
+    public void stopByStopTestWithFixes(Blackhole blackhole) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        ValidationContext context = new ValidationContext();
+        for (int i = 0; i < routes.size(); i++) {
+            SegmentChecker segmentChecker = stopByStopTest(test, context, i);
+            segmentChecker.findFixes();
+            blackhole.consume(segmentChecker);
+        }
+    }
+
+    private SegmentChecker stopByStopTest(PTAssistantValidatorTest test, ValidationContext context, int i) {
+        SegmentChecker segmentChecker = new SegmentChecker(routes.get(i), test, context);
+        segmentChecker.setManager(managers.get(i));
+        segmentChecker.setAssigner(assigners.get(i));
+        segmentChecker.performStopByStopTest();
+        return segmentChecker;
+    }
+}
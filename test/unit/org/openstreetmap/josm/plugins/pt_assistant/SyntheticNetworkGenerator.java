@@ -0,0 +1,368 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+
+/**
+ * Generates a deterministic public transport network of arbitrary size, for tests and benchmarks
+ * that need more routes than the fixtures in {@code test/data}.
+ *
+ * The network is a grid of roads. Every few rows are oneway (in east direction) and every few
+ * intersections are roundabouts, split into four oneway arcs. Each road between two intersections
+ * is a separate way. The bus routes (public transport version 2) run from west to east, turning
+ * north or south on the way, and have a stop every other road, with a stop_position on the road,
+ * a platform next to it and a stop_area relation. Gaps (a missing way) and sorting errors (two
+ * swapped ways) can be injected into a given share of the routes.
+ *
+ * The same settings always produce the same data set.
+ */
+public final class SyntheticNetworkGenerator {
+
+    private static final double BASE_LAT = 48.0;
+    private static final double BASE_LON = 11.0;
+    /* distance between two intersections in degrees (about 200 m) */
+    private static final double SPACING = 0.002;
+    private static final double ROUNDABOUT_RADIUS = SPACING / 8;
+    private static final double PLATFORM_OFFSET = SPACING / 20;
+
+    /* sides of an intersection, in the (counterclockwise) driving direction of roundabouts */
+    private static final int WEST = 0;
+    private static final int SOUTH = 1;
+    private static final int EAST = 2;
+    private static final int NORTH = 3;
+
+    private int gridSize = 20;
+    private int routeCount = 10;
+    private int routeLength = 20;
+    private int onewayRowInterval = 4;
+    private int roundaboutInterval = 5;
+    private double gapProbability;
+    private double sortingErrorProbability;
+    private long seed = 1;
+
+    private DataSet ds;
+    private Random random;
+    private Node[][] intersections;
+    private Node[][][] roundaboutSides;
+    private Way[][][] roundaboutArcs;
+    private Way[][] horizontalWays;
+    private Way[][] verticalWays;
+    private Map<Way, Node[]> stops;
+    private final Set<Relation> routesWithGaps = new LinkedHashSet<>();
+    private final Set<Relation> routesWithSortingErrors = new LinkedHashSet<>();
+
+    /**
+     * Sets the number of intersections in each direction (default 20)
+     * @param gridSize number of intersections per row and column, at least 2
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator gridSize(int gridSize) {
+        this.gridSize = Math.max(2, gridSize);
+        return this;
+    }
+
+    /**
+     * Sets the number of generated routes (default 10)
+     * @param routeCount number of routes
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator routes(int routeCount) {
+        this.routeCount = routeCount;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of roads a route runs on (default 20)
+     * @param routeLength number of roads between intersections, not counting roundabout arcs
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator routeLength(int routeLength) {
+        this.routeLength = Math.max(2, routeLength);
+        return this;
+    }
+
+    /**
+     * Sets the distance between the oneway rows (default 4, 0 for no oneway roads)
+     * @param onewayRowInterval every n-th row is oneway
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator onewayRowInterval(int onewayRowInterval) {
+        this.onewayRowInterval = onewayRowInterval;
+        return this;
+    }
+
+    /**
+     * Sets the distance between the roundabouts (default 5, 0 for no roundabouts)
+     * @param roundaboutInterval every n-th intersection of every n-th row is a roundabout
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator roundaboutInterval(int roundaboutInterval) {
+        this.roundaboutInterval = roundaboutInterval;
+        return this;
+    }
+
+    /**
+     * Sets the share of the routes with a gap (default 0)
+     * @param gapProbability probability between 0 and 1 that a way is missing in a route
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator gapProbability(double gapProbability) {
+        this.gapProbability = gapProbability;
+        return this;
+    }
+
+    /**
+     * Sets the share of the routes with wrongly sorted ways (default 0)
+     * @param sortingErrorProbability probability between 0 and 1 that two ways of a route are swapped
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator sortingErrorProbability(double sortingErrorProbability) {
+        this.sortingErrorProbability = sortingErrorProbability;
+        return this;
+    }
+
+    /**
+     * Sets the seed of the random numbers (default 1)
+     * @param seed seed
+     * @return this generator
+     */
+    public SyntheticNetworkGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    /**
+     * Generates a new data set with the current settings
+     * @return the data set with the network and the routes
+     */
+    public DataSet generate() {
+        ds = new DataSet();
+        random = new Random(seed);
+        stops = new HashMap<>();
+        routesWithGaps.clear();
+        routesWithSortingErrors.clear();
+        createIntersections();
+        createRoads();
+        for (int i = 0; i < routeCount; i++) {
+            createRoute(i + 1);
+        }
+        return ds;
+    }
+
+    /**
+     * Returns the routes of the last generated data set into which a gap has been injected
+     * @return the routes with a gap
+     */
+    public Set<Relation> getRoutesWithGaps() {
+        return Collections.unmodifiableSet(routesWithGaps);
+    }
+
+    /**
+     * Returns the routes of the last generated data set into which a sorting error has been injected
+     * @return the routes with wrongly sorted ways
+     */
+    public Set<Relation> getRoutesWithSortingErrors() {
+        return Collections.unmodifiableSet(routesWithSortingErrors);
+    }
+
+    private boolean isRoundabout(int x, int y) {
+        return roundaboutInterval > 0 && x > 0 && y > 0 && x < gridSize - 1 && y < gridSize - 1
+            && x % roundaboutInterval == roundaboutInterval / 2 && y % roundaboutInterval == roundaboutInterval / 2;
+    }
+
+    private void createIntersections() {
+        intersections = new Node[gridSize][gridSize];
+        roundaboutSides = new Node[gridSize][gridSize][];
+        roundaboutArcs = new Way[gridSize][gridSize][];
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                double lat = BASE_LAT + y * SPACING;
+                double lon = BASE_LON + x * SPACING;
+                if (isRoundabout(x, y)) {
+                    Node[] sides = {
+                        addNode(lat, lon - ROUNDABOUT_RADIUS),
+                        addNode(lat - ROUNDABOUT_RADIUS, lon),
+                        addNode(lat, lon + ROUNDABOUT_RADIUS),
+                        addNode(lat + ROUNDABOUT_RADIUS, lon)
+                    };
+                    Way[] arcs = new Way[4];
+                    for (int side = 0; side < 4; side++) {
+                        arcs[side] = addWay(sides[side], sides[(side + 1) % 4]);
+                        arcs[side].put("highway", "primary");
+                        arcs[side].put("junction", "roundabout");
+                    }
+                    roundaboutSides[x][y] = sides;
+                    roundaboutArcs[x][y] = arcs;
+                } else {
+                    intersections[x][y] = addNode(lat, lon);
+                }
+            }
+        }
+    }
+
+    private Node getEnd(int x, int y, int side) {
+        return roundaboutSides[x][y] != null ? roundaboutSides[x][y][side] : intersections[x][y];
+    }
+
+    private void createRoads() {
+        horizontalWays = new Way[gridSize - 1][gridSize];
+        verticalWays = new Way[gridSize][gridSize - 1];
+        for (int x = 0; x < gridSize; x++) {
+            for (int y = 0; y < gridSize; y++) {
+                if (x < gridSize - 1) {
+                    Way way = addRoad(getEnd(x, y, EAST), getEnd(x + 1, y, WEST));
+                    way.put("name", "Row " + y);
+                    if (onewayRowInterval > 0 && y % onewayRowInterval == 1) {
+                        way.put("oneway", "yes");
+                    }
+                    horizontalWays[x][y] = way;
+                }
+                if (y < gridSize - 1) {
+                    Way way = addRoad(getEnd(x, y, NORTH), getEnd(x, y + 1, SOUTH));
+                    way.put("name", "Column " + x);
+                    verticalWays[x][y] = way;
+                }
+            }
+        }
+    }
+
+    private Way addRoad(Node start, Node end) {
+        Node middle = addNode((start.lat() + end.lat()) / 2, (start.lon() + end.lon()) / 2);
+        Way way = addWay(start, middle, end);
+        way.put("highway", "residential");
+        return way;
+    }
+
+    /**
+     * Returns the stop of the given road, which is created on first use
+     * @param way road
+     * @param horizontal if the road runs from west to east, the platform is north of horizontal and east of vertical roads
+     * @return the stop position and the platform
+     */
+    private Node[] getStop(Way way, boolean horizontal) {
+        return stops.computeIfAbsent(way, it -> {
+            String name = "Stop " + (stops.size() + 1);
+            Node stopPosition = it.getNode(1);
+            stopPosition.put("public_transport", "stop_position");
+            stopPosition.put("bus", "yes");
+            stopPosition.put("name", name);
+            Node platform = horizontal
+                ? addNode(stopPosition.lat() + PLATFORM_OFFSET, stopPosition.lon())
+                : addNode(stopPosition.lat(), stopPosition.lon() + PLATFORM_OFFSET);
+            platform.put("public_transport", "platform");
+            platform.put("highway", "bus_stop");
+            platform.put("bus", "yes");
+            platform.put("name", name);
+            Relation stopArea = new Relation();
+            stopArea.put("type", "public_transport");
+            stopArea.put("public_transport", "stop_area");
+            stopArea.put("name", name);
+            stopArea.addMember(new RelationMember("stop", stopPosition));
+            stopArea.addMember(new RelationMember("platform", platform));
+            ds.addPrimitive(stopArea);
+            return new Node[] {stopPosition, platform};
+        });
+    }
+
+    private void createRoute(int ref) {
+        int x = random.nextInt(gridSize - 1);
+        int y = random.nextInt(gridSize);
+        int verticalDirection = random.nextBoolean() ? 1 : -1;
+
+        List<Way> ways = new ArrayList<>();
+        List<Node[]> routeStops = new ArrayList<>();
+        int entrySide = -1;
+        for (int road = 0; road < routeLength; road++) {
+            boolean canGoEast = x < gridSize - 1;
+            boolean canGoVertically = y + verticalDirection >= 0 && y + verticalDirection < gridSize;
+            if (!canGoEast && !canGoVertically) {
+                break;
+            }
+            boolean east = canGoEast && (!canGoVertically || road == 0 || random.nextDouble() < 0.6);
+            int exitSide = east ? EAST : verticalDirection > 0 ? NORTH : SOUTH;
+
+            // through the roundabout, from the side where the route came in to the side of the next road:
+            if (entrySide >= 0 && roundaboutArcs[x][y] != null) {
+                for (int side = entrySide; side != exitSide; side = (side + 1) % 4) {
+                    ways.add(roundaboutArcs[x][y][side]);
+                }
+            }
+
+            Way way;
+            if (east) {
+                way = horizontalWays[x][y];
+                x++;
+                entrySide = WEST;
+            } else if (verticalDirection > 0) {
+                way = verticalWays[x][y];
+                y++;
+                entrySide = SOUTH;
+            } else {
+                way = verticalWays[x][y - 1];
+                y--;
+                entrySide = NORTH;
+            }
+            ways.add(way);
+            if (road % 2 == 0) {
+                routeStops.add(getStop(way, east));
+            }
+        }
+
+        Relation route = new Relation();
+        route.put("type", "route");
+        route.put("route", "bus");
+        route.put("public_transport:version", "2");
+        route.put("ref", Integer.toString(ref));
+        route.put("name", "Bus " + ref);
+        route.put("from", routeStops.get(0)[0].get("name"));
+        route.put("to", routeStops.get(routeStops.size() - 1)[0].get("name"));
+        for (Node[] stop : routeStops) {
+            route.addMember(new RelationMember("stop", stop[0]));
+            route.addMember(new RelationMember("platform", stop[1]));
+        }
+
+        // inject the errors, never at the first or last way:
+        if (ways.size() > 3 && random.nextDouble() < gapProbability) {
+            ways.remove(1 + random.nextInt(ways.size() - 2));
+            routesWithGaps.add(route);
+        }
+        if (ways.size() > 3 && random.nextDouble() < sortingErrorProbability) {
+            int i = 1 + random.nextInt(ways.size() - 3);
+            Collections.swap(ways, i, i + 1);
+            routesWithSortingErrors.add(route);
+        }
+        for (Way way : ways) {
+            route.addMember(new RelationMember("", way));
+        }
+        ds.addPrimitive(route);
+    }
+
+    private Node addNode(double lat, double lon) {
+        Node node = new Node(new LatLon(lat, lon));
+        ds.addPrimitive(node);
+        return node;
+    }
+
+    private Way addWay(Node... nodes) {
+        Way way = new Way();
+        for (Node node : nodes) {
+            way.addNode(node);
+        }
+        ds.addPrimitive(way);
+        return way;
+    }
+}
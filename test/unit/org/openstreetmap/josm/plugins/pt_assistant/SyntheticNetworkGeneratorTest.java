@@ -0,0 +1,86 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+import org.openstreetmap.josm.plugins.pt_assistant.validation.PTAssistantValidatorTest;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class SyntheticNetworkGeneratorTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules().preferences();
+
+    @Test
+    public void testDeterministic() {
+        SyntheticNetworkGenerator generator = new SyntheticNetworkGenerator().routes(50).gapProbability(0.2);
+        assertEquals(describe(generator.generate()), describe(generator.generate()));
+        List<String> otherSeed = describe(generator.seed(2).generate());
+        assertFalse(otherSeed.equals(describe(generator.seed(1).generate())));
+    }
+
+    @Test
+    public void testRoutes() {
+        DataSet ds = new SyntheticNetworkGenerator().gridSize(30).routes(100).generate();
+        List<Relation> routes = ds.getRelations().stream().filter(RouteUtils::isVersionTwoPTRoute).collect(Collectors.toList());
+        assertEquals(100, routes.size());
+        assertTrue(ds.getWays().stream().anyMatch(it -> it.hasTag("junction", "roundabout")));
+        assertTrue(ds.getWays().stream().anyMatch(it -> it.hasTag("oneway", "yes")));
+
+        // without injected errors, the routes are continuous and follow the oneway roads:
+        List<Integer> routeErrorCodes = Arrays.asList(PTAssistantValidatorTest.ERROR_CODE_SORTING,
+            PTAssistantValidatorTest.ERROR_CODE_PARTIAL_SORTING, PTAssistantValidatorTest.ERROR_CODE_TRIVIAL_FIX,
+            PTAssistantValidatorTest.ERROR_CODE_DIRECTION, PTAssistantValidatorTest.ERROR_CODE_ROAD_TYPE);
+        for (TestError error : validate(ds)) {
+            assertFalse(error.getMessage(), routeErrorCodes.contains(error.getCode()));
+        }
+    }
+
+    @Test
+    public void testInjectedErrors() {
+        SyntheticNetworkGenerator generator = new SyntheticNetworkGenerator()
+            .routes(40).gapProbability(0.5).sortingErrorProbability(0.5);
+        DataSet ds = generator.generate();
+        assertFalse(generator.getRoutesWithGaps().isEmpty());
+        assertFalse(generator.getRoutesWithSortingErrors().isEmpty());
+
+        List<TestError> errors = validate(ds);
+        for (Relation route : generator.getRoutesWithGaps()) {
+            assertTrue(route.get("ref"), errors.stream().anyMatch(it -> it.getPrimitives().contains(route)));
+        }
+        for (Relation route : generator.getRoutesWithSortingErrors()) {
+            assertTrue(route.get("ref"), errors.stream().anyMatch(it -> it.getPrimitives().contains(route)));
+        }
+    }
+
+    private static List<TestError> validate(DataSet ds) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        return test.getErrors();
+    }
+
+    private static List<String> describe(DataSet ds) {
+        return ds.getRelations().stream()
+            .sorted(Comparator.comparing(it -> it.get("name")))
+            .map(it -> it.get("name") + " " + it.getMembers().stream()
+                .map(member -> member.getRole() + member.getMember().getDisplayType() + member.getMember().getBBox().getCenter())
+                .collect(Collectors.joining(",")))
+            .collect(Collectors.toList());
+    }
+}
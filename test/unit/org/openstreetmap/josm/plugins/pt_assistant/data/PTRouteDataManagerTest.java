@@ -0,0 +1,75 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+/**
+ * Unit tests of {@link PTRouteDataManager}.
+ */
+public class PTRouteDataManagerTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    private final Way w1 = new Way(1);
+    private final Way w2 = new Way(2);
+    private final Way w3 = new Way(3);
+    private final Way w4 = new Way(4);
+
+    private static Node stop(long id, String role, String name, double lat) {
+        Node node = new Node(id, 1);
+        node.setCoor(new LatLon(lat, 0));
+        node.put("public_transport", "stop".equals(role) ? "stop_position" : "platform");
+        node.put("name", name);
+        return node;
+    }
+
+    private static List<Long> ids(List<PTWay> ptways) {
+        return ptways.stream().map(it -> it.getWays().get(0).getId()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testNavigation() {
+        // the route runs twice through w1 and w2:
+        Relation route = new Relation(1);
+        route.addMember(new RelationMember("stop", stop(11, "stop", "A", 0)));
+        route.addMember(new RelationMember("platform", stop(12, "platform", "A", 0)));
+        route.addMember(new RelationMember("stop", stop(21, "stop", "B", 1)));
+        for (Way way : Arrays.asList(w1, w2, w3, w1, w2, w4)) {
+            route.addMember(new RelationMember("", way));
+        }
+        PTRouteDataManager manager = new PTRouteDataManager(route);
+        List<PTWay> ptways = manager.getPTWays();
+
+        assertEquals(Arrays.asList(2L, 3L, 1L), ids(manager.getPTWaysBetween(w2, w1)));
+        assertEquals(Arrays.asList(1L, 2L, 4L), ids(manager.getPTWaysBetween(w1, w4)));
+        assertEquals(Collections.singletonList(3L), ids(manager.getPTWaysBetween(w3, w3)));
+        // without a start way before the end way, the first way is returned:
+        assertEquals(Collections.singletonList(1L), ids(manager.getPTWaysBetween(w4, w3)));
+
+        assertSame(ptways.get(4), manager.getNextPTWay(ptways.get(3)));
+        assertNull(manager.getNextPTWay(ptways.get(5)));
+        assertNull(manager.getNextPTWay(new PTWay(new RelationMember("", w1))));
+
+        assertSame(manager.getPTStops().get(0), manager.getPTStop(11));
+        assertSame(manager.getPTStops().get(0), manager.getPTStop(12));
+        assertSame(manager.getPTStops().get(1), manager.getPTStop(21));
+        assertNull(manager.getPTStop(1));
+    }
+}
@@ -0,0 +1,88 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class PTRouteSegmentTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    @Test
+    public void testWaySequence() {
+        PTWay way1 = new PTWay(new RelationMember("", new Way(1)));
+        PTWay way2 = new PTWay(new RelationMember("", new Way(2)));
+        PTWay otherWay1 = new PTWay(new RelationMember("", new Way(1)));
+        Relation route = new Relation(1);
+
+        PTRouteSegment segment = new PTRouteSegment(null, null, Arrays.asList(way1, way2), route);
+        PTRouteSegment sameWays = new PTRouteSegment(null, null, Arrays.asList(otherWay1, way2), route);
+        PTRouteSegment reversed = new PTRouteSegment(null, null, Arrays.asList(way2, way1), route);
+
+        assertArrayEquals(new long[] {1, 2}, segment.getWayIds());
+        assertTrue(segment.equalsRouteSegment(sameWays));
+        assertEquals(segment.getWaySequenceHash(), sameWays.getWaySequenceHash());
+        assertFalse(segment.equalsRouteSegment(reversed));
+
+        // the way sequence is updated with the ways:
+        reversed.setPTWays(Arrays.asList(way1, way2));
+        assertTrue(segment.equalsRouteSegment(reversed));
+
+        // fix variants with the same ways are only added once:
+        segment.addFixVariant(Arrays.asList(way1, way2));
+        segment.addFixVariant(Arrays.asList(otherWay1, way2));
+        segment.addFixVariant(Collections.singletonList(way2));
+        assertEquals(2, segment.getFixVariants().size());
+
+        // the returned list is a copy:
+        segment.getFixVariants().clear();
+        assertEquals(2, segment.getFixVariants().size());
+    }
+
+    @Test
+    public void testFixVariantsAreComputedOnDemand() {
+        PTWay ptway = new PTWay(new RelationMember("", new Way(1)));
+        PTRouteSegment segment = new PTRouteSegment(null, null, Collections.singletonList(ptway), new Relation(1));
+        assertTrue(segment.areFixVariantsComputed());
+
+        AtomicInteger finderCalls = new AtomicInteger();
+        segment.setFixVariantFinder(() -> {
+            finderCalls.incrementAndGet();
+            return Collections.singletonList(Collections.singletonList(ptway));
+        });
+        assertFalse(segment.areFixVariantsComputed());
+        assertTrue(segment.getFixVariants().isEmpty());
+        assertEquals(0, finderCalls.get());
+
+        List<Runnable> tasks = new ArrayList<>();
+        CompletableFuture<List<List<PTWay>>> computation = segment.computeFixVariants(tasks::add);
+        assertFalse(segment.areFixVariantsComputed());
+        tasks.forEach(Runnable::run);
+
+        assertTrue(segment.areFixVariantsComputed());
+        assertEquals(1, computation.join().size());
+        assertEquals(1, segment.getFixVariants().size());
+
+        // the result is memoized:
+        assertSame(computation, segment.computeFixVariants(Runnable::run));
+        assertEquals(1, finderCalls.get());
+    }
+}
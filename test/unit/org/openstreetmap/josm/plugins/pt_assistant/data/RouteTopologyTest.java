@@ -0,0 +1,92 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+/**
+ * Unit tests of {@link RouteTopology}.
+ */
+public class RouteTopologyTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    private static Way way(Node... nodes) {
+        Way way = new Way();
+        way.setNodes(Arrays.asList(nodes));
+        return way;
+    }
+
+    @Test
+    public void testTopology() {
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 0.001));
+        Node n3 = new Node(new LatLon(0, 0.002));
+        Node n4 = new Node(new LatLon(0, 0.003));
+        Node n5 = new Node(new LatLon(0, 0.004));
+        Node n6 = new Node(new LatLon(0, 0.005));
+        Node n7 = new Node(new LatLon(0, 0.006));
+
+        // w1 forward, w2 backward, w3 and w4 in a nested relation, then a gap before w5:
+        Way w1 = way(n1, n2);
+        Way w2 = way(n3, n2);
+        Way w3 = way(n3, n4);
+        Way w4 = way(n4, n5);
+        Way w5 = way(n6, n7);
+        Relation nested = new Relation();
+        nested.addMember(new RelationMember("", w3));
+        nested.addMember(new RelationMember("", w4));
+
+        Relation route = new Relation();
+        route.addMember(new RelationMember("stop", n1));
+        route.addMember(new RelationMember("", w1));
+        route.addMember(new RelationMember("", w2));
+        route.addMember(new RelationMember("", nested));
+        route.addMember(new RelationMember("", w5));
+
+        RouteTopology topology = RouteTopology.of(route);
+        assertEquals(5, topology.getWayCount());
+        assertEquals(Arrays.asList(w1, w2, w3, w4, w5), topology.getWays());
+        assertEquals(1, topology.getMemberIndex(0));
+        assertEquals(3, topology.getMemberIndex(3));
+        assertFalse(topology.isNested(1));
+        assertTrue(topology.isNested(2));
+        assertEquals(n2.getUniqueId(), topology.getLastNodeId(1));
+
+        assertEquals(RouteTopology.FORWARD, topology.getDirection(0));
+        assertEquals(RouteTopology.BACKWARD, topology.getDirection(1));
+        assertEquals(RouteTopology.FORWARD, topology.getDirection(2));
+        assertEquals(RouteTopology.FORWARD, topology.getDirection(3));
+        assertEquals(RouteTopology.NONE, topology.getDirection(4));
+        assertTrue(topology.isConnectedToPrevious(1));
+        assertFalse(topology.isConnectedToPrevious(4));
+
+        assertArrayEquals(new int[] {0, 1}, topology.getWaysAt(n2));
+        assertArrayEquals(new int[] {4}, topology.getWaysAt(n7));
+        assertArrayEquals(new int[0], topology.getWaysAt(new Node(new LatLon(1, 1))));
+
+        // the ways of the nested relation belong to the same PTWay:
+        assertEquals(2, topology.getPTWayIndex(2));
+        assertEquals(2, topology.getPTWayIndex(3));
+        assertEquals(3, topology.getPTWayIndex(4));
+
+        assertEquals(1, topology.getEndDegree(n1));
+        assertEquals(2, topology.getEndDegree(n2));
+        assertEquals(2, topology.getPTWayCountAt(n2));
+        assertEquals(0, topology.getEndDegree(new Node(new LatLon(1, 1))));
+    }
+}
@@ -2,14 +2,23 @@
 package org.openstreetmap.josm.plugins.pt_assistant.data;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Collections;
+import java.util.Map;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
 import org.openstreetmap.josm.data.osm.Relation;
 import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
 import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayAssigner;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.StopToWayCache;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
 
 /**
@@ -56,4 +65,51 @@ public class StopToWayAssignerTest {
         Way way4 = assigner.get(ptstop4);
         assertEquals(way4.getId(), 120277227L);
     }
+
+    @Test
+    public void testCache() {
+
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ONEWAY_BAD_MEMBER_SORTING(), "testLayer");
+        Relation route = (Relation) ds.getPrimitiveById(4552871L, OsmPrimitiveType.RELATION);
+
+        PTRouteDataManager manager = new PTRouteDataManager(route);
+        StopToWayAssigner assigner = new StopToWayAssigner(manager.getPTWays());
+        StopToWayCache cache = StopToWayCache.getCache(ds);
+
+        PTStop ptstop = manager.getPTStop(447358573L);
+        Way way = assigner.get(ptstop);
+        assertEquals(0, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        // the second lookup is answered by the cache:
+        assertEquals(way, assigner.get(ptstop));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(way, cache.get(ptstop, Collections.singleton(way)));
+
+        // moving a node of the assigned way evicts the entry:
+        Node node = way.getNode(0);
+        node.setCoor(new LatLon(node.lat() + 0.0001, node.lon()));
+        assertNull(cache.get(ptstop, Collections.singleton(way)));
+    }
+
+    @Test
+    public void testAssignStops() {
+
+        DataSet ds = TestFiles.importOsmFile(TestFiles.SEGMENT_TEST(), "testLayer");
+        Relation route = ds.getRelations().stream().filter(RouteUtils::isVersionTwoPTRoute).findFirst().get();
+        PTRouteDataManager manager = new PTRouteDataManager(route);
+
+        Map<PTStop, Way> stopToWay = StopToWayAssigner.assignStops(manager);
+
+        // the bulk assignment gives the same result as the assignment of single stops:
+        DataSet ds2 = TestFiles.importOsmFile(TestFiles.SEGMENT_TEST(), "testLayer2");
+        Relation route2 = (Relation) ds2.getPrimitiveById(route.getPrimitiveId());
+        PTRouteDataManager manager2 = new PTRouteDataManager(route2);
+        StopToWayAssigner assigner2 = new StopToWayAssigner(manager2.getPTWays());
+        for (int i = 0; i < manager.getPTStopCount(); i++) {
+            Way expected = assigner2.get(manager2.getPTStops().get(i));
+            Way actual = stopToWay.get(manager.getPTStops().get(i));
+            assertEquals(expected == null ? null : expected.getPrimitiveId(), actual == null ? null : actual.getPrimitiveId());
+        }
+    }
 }
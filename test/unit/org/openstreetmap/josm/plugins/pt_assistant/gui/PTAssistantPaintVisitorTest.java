@@ -3,6 +3,7 @@ package org.openstreetmap.josm.plugins.pt_assistant.gui;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
@@ -34,4 +35,15 @@ public class PTAssistantPaintVisitorTest {
 
         assertEquals(Arrays.asList("", "1", "5Ä", "42", "123", "123a", "54321", "19999999999", "ABC", "Ä5"), listToSort);
     }
+
+    @Test
+    public void testSortRouteRefs() {
+        final List<String> refs = new ArrayList<>(Arrays.asList("ABC", "1", "123", "42", "123a", "5Ä", "Ä5", "19999999999", "54321", "", "0123b"));
+        final List<String> expected = new ArrayList<>(refs);
+        expected.sort(new PTAssistantPaintVisitor.RefTagComparator());
+
+        PTAssistantPaintVisitor.RefTagComparator.sort(refs);
+        assertEquals(expected, refs);
+        assertEquals(Arrays.asList("", "1", "5Ä", "42", "123", "123a", "0123b", "54321", "19999999999", "ABC", "Ä5"), refs);
+    }
 }
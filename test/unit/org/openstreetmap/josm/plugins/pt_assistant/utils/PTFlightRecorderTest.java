@@ -0,0 +1,22 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import static org.junit.Assert.assertSame;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class PTFlightRecorderTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    @Test
+    public void testNoRecording() {
+        // no event is created if no recording is running
+        assertSame(PTFlightRecorder.NONE, PTFlightRecorder.begin("test", new Relation(1)));
+        assertSame(PTFlightRecorder.NONE, PTFlightRecorder.begin("test", null));
+    }
+}
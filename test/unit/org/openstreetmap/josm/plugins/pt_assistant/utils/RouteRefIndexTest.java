@@ -0,0 +1,83 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class RouteRefIndexTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    private static Relation route(String ref, Node stop) {
+        Relation route = new Relation();
+        route.put("type", "route");
+        route.put("route", "bus");
+        route.put("public_transport:version", "2");
+        route.put("ref", ref);
+        route.addMember(new RelationMember("stop", stop));
+        return route;
+    }
+
+    @Test
+    public void testRefsAreSortedAndDistinct() {
+        DataSet ds = new DataSet();
+        Node stop = new Node(new LatLon(0, 0));
+        ds.addPrimitive(stop);
+        ds.addPrimitive(route("10", stop));
+        ds.addPrimitive(route("2", stop));
+        ds.addPrimitive(route("2", stop));
+        Relation version1 = route("5", stop);
+        version1.put("public_transport:version", "1");
+        ds.addPrimitive(version1);
+
+        RouteRefIndex index = RouteRefIndex.getIndex(ds);
+        assertSame(index, RouteRefIndex.getIndex(ds));
+        assertEquals(Arrays.asList("2", "10"), RouteRefIndex.getRouteRefs(stop));
+        assertSame(index.get(stop), RouteRefIndex.getRouteRefs(stop));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testRefsFollowTheRoutes() {
+        DataSet ds = new DataSet();
+        Node stop = new Node(new LatLon(0, 0));
+        ds.addPrimitive(stop);
+        Relation route = route("7", stop);
+        ds.addPrimitive(route);
+        assertEquals(Collections.singletonList("7"), RouteRefIndex.getRouteRefs(stop));
+
+        route.put("ref", "8");
+        assertEquals(Collections.singletonList("8"), RouteRefIndex.getRouteRefs(stop));
+
+        Relation other = route("1", stop);
+        ds.addPrimitive(other);
+        assertEquals(Arrays.asList("1", "8"), RouteRefIndex.getRouteRefs(stop));
+
+        route.removeMember(0);
+        assertEquals(Collections.singletonList("1"), RouteRefIndex.getRouteRefs(stop));
+
+        ds.removePrimitive(other);
+        assertTrue(RouteRefIndex.getRouteRefs(stop).isEmpty());
+    }
+
+    @Test
+    public void testPrimitiveWithoutDataSet() {
+        Node stop = new Node(new LatLon(0, 0));
+        route("3", stop);
+        assertTrue(RouteRefIndex.getRouteRefs(stop).isEmpty());
+    }
+}
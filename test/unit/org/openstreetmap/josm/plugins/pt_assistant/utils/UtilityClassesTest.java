@@ -19,6 +19,7 @@ public class UtilityClassesTest {
         TestUtil.testUtilityClass(NodeUtils.class);
         TestUtil.testUtilityClass(NotificationUtils.class);
         TestUtil.testUtilityClass(PrimitiveUtils.class);
+        TestUtil.testUtilityClass(PTFlightRecorder.class);
         TestUtil.testUtilityClass(PTIcons.class);
         TestUtil.testUtilityClass(PTProperties.class);
         TestUtil.testUtilityClass(RouteUtils.class);
@@ -0,0 +1,57 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.BBox;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class WayNodeIndexTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    @Test
+    public void testSearchMatchesFullScan() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ONEWAY_BAD_MEMBER_SORTING(), "testLayer");
+        WayNodeIndex index = WayNodeIndex.getIndex(ds);
+        assertSame(index, WayNodeIndex.getIndex(ds));
+
+        for (Node center : ds.getNodes()) {
+            if (!center.isLatLonKnown()) {
+                continue;
+            }
+            BBox bbox = new BBox(center.lon() - 0.002, center.lat() - 0.002, center.lon() + 0.002, center.lat() + 0.002);
+            Set<Node> expected = ds.getNodes().stream()
+                .filter(n -> n.isLatLonKnown() && n.isReferredByWays(1) && bbox.bounds(n.getBBox()))
+                .collect(Collectors.toSet());
+            assertEquals(expected, new HashSet<>(index.searchWayNodes(bbox)));
+        }
+    }
+
+    @Test
+    public void testNodeMoved() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ONEWAY_BAD_MEMBER_SORTING(), "testLayer");
+        WayNodeIndex index = WayNodeIndex.getIndex(ds);
+
+        Node node = ds.getNodes().stream().filter(n -> n.isReferredByWays(1)).findFirst().get();
+        LatLon newPosition = new LatLon(node.lat() + 0.1, node.lon() + 0.1);
+        node.setCoor(newPosition);
+
+        assertTrue(index.searchWayNodes(node.getCoor(), 0.0001).contains(node));
+        assertFalse(index.searchWayNodes(new LatLon(node.lat() - 0.1, node.lon() - 0.1), 0.0001).contains(node));
+    }
+}
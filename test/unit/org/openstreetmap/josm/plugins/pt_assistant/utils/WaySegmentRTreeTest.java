@@ -0,0 +1,80 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+import org.openstreetmap.josm.tools.Pair;
+
+public class WaySegmentRTreeTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    @Test
+    public void testMatchesFullScan() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ONEWAY_BAD_MEMBER_SORTING(), "testLayer");
+        List<Way> ways = ds.getWays().stream().filter(Way::isUsable).collect(Collectors.toList());
+        WaySegmentRTree tree = new WaySegmentRTree(ways);
+        assertEquals(ways.stream().mapToInt(w -> w.getNodesCount() - 1).sum(), tree.size());
+
+        for (Node node : ds.getNodes()) {
+            if (!node.isLatLonKnown()) {
+                continue;
+            }
+            LatLon point = new LatLon(node.lat() + 0.0001, node.lon() - 0.0002);
+
+            Way expectedWay = ways.stream().collect(WayUtils.nearestToPointCollector(point)).get();
+            assertSame(expectedWay, tree.findNearestWay(point).get());
+
+            Way way = ways.get(Math.floorMod(node.hashCode(), ways.size()));
+            Pair<Node, Node> expectedSegment = GeometryUtils.findNearestSegment(way.getNodePairs(false), point).get().getSegment();
+            Pair<Node, Node> segment = tree.findNearestSegment(point, it -> it == way).get().getNodes();
+            assertSame(expectedSegment.a, segment.a);
+            assertSame(expectedSegment.b, segment.b);
+
+            // the nearest segment which is not the nearest one of its way:
+            WaySegmentRTree.Segment nearest = tree.findNearestSegment(point).get();
+            double expectedOtherDistance = ways.stream()
+                .flatMap(w -> IntStream.range(0, w.getNodesCount() - 1)
+                    .filter(i -> w != nearest.getWay() || i != nearest.getLowerIndex())
+                    .mapToObj(i -> Pair.create(w.getNode(i), w.getNode(i + 1))))
+                .mapToDouble(pair -> GeometryUtils.distPointToSegment(pair, point))
+                .min().getAsDouble();
+            assertEquals(expectedOtherDistance,
+                tree.findNearestMatchingSegment(point, it -> it != nearest).get().distance(point), 0);
+
+            Set<Pair<Node, Node>> expectedWithinDistance = ways.stream()
+                .flatMap(w -> w.getNodePairs(false).stream())
+                .filter(pair -> GeometryUtils.distPointToSegment(pair, point) <= 0.001)
+                .collect(Collectors.toSet());
+            assertEquals(expectedWithinDistance, tree.findSegmentsWithinDistance(point, 0.001).stream()
+                .map(WaySegmentRTree.Segment::getNodes)
+                .collect(Collectors.toCollection(HashSet::new)));
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        WaySegmentRTree tree = new WaySegmentRTree(new ArrayList<>());
+        assertEquals(0, tree.size());
+        assertFalse(tree.findNearestSegment(new LatLon(0, 0)).isPresent());
+        assertEquals(0, tree.findSegmentsWithinDistance(new LatLon(0, 0), 1).size());
+    }
+}
@@ -0,0 +1,72 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class BatchValidatorTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules().preferences();
+
+    @Test
+    public void testJsonLines() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        StringWriter writer = new StringWriter();
+        new BatchValidator(2, writer).validate(ds, "roundabout");
+
+        List<JsonObject> routes = new ArrayList<>();
+        List<JsonObject> errors = new ArrayList<>();
+        List<JsonObject> summaries = new ArrayList<>();
+        for (String line : writer.toString().split("\\R")) {
+            try (JsonReader reader = Json.createReader(new StringReader(line))) {
+                JsonObject json = reader.readObject();
+                assertEquals("roundabout", json.getString("source"));
+                switch (json.getString("type")) {
+                case "route":
+                    routes.add(json);
+                    break;
+                case "error":
+                    errors.add(json);
+                    break;
+                default:
+                    summaries.add(json);
+                }
+            }
+        }
+
+        assertEquals(2, summaries.size());
+        JsonObject ptSummary = summaries.get(0);
+        assertEquals(19, ptSummary.getInt("routes"));
+        assertEquals(2, ptSummary.getInt("threads"));
+        assertTrue(ptSummary.getJsonNumber("routesPerSecond").doubleValue() > 0);
+        assertEquals(0, summaries.get(1).getInt("routes"));
+        assertEquals(ptSummary.getInt("routes"), routes.size());
+        assertEquals(ptSummary.getInt("errors"), errors.size());
+        for (JsonObject route : routes) {
+            assertTrue(route.getJsonNumber("millis").doubleValue() >= 0);
+        }
+
+        // the preferences are not modified:
+        assertFalse(PTProperties.PARALLEL_VALIDATION.isSet());
+        assertFalse(PTProperties.VALIDATION_THREADS.isSet());
+        assertFalse(PTProperties.INCREMENTAL_VALIDATION.isSet());
+    }
+}
@@ -5,14 +5,21 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
 import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
 import org.openstreetmap.josm.data.osm.OsmPrimitive;
 import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
 import org.openstreetmap.josm.data.validation.TestError;
 import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
 import org.openstreetmap.josm.testutils.JOSMTestRules;
@@ -62,4 +69,44 @@ public class DirecionTestTest {
 
         assertTrue(detectedErrorsAreCorrect);
     }
+
+    @Test
+    public void testTouchingWaysAreReportedTogether() {
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            nodes.add(new Node(new LatLon(0, i * 0.001)));
+        }
+        // the route runs from west to east, against the oneways w2, w3 and w6:
+        Way w1 = way(nodes.get(0), nodes.get(1), false);
+        Way w2 = way(nodes.get(2), nodes.get(1), true);
+        Way w3 = way(nodes.get(3), nodes.get(2), true);
+        Way w4 = way(nodes.get(3), nodes.get(4), false);
+        Way w5 = way(nodes.get(4), nodes.get(5), false);
+        Way w6 = way(nodes.get(6), nodes.get(5), true);
+        Way w7 = way(nodes.get(6), nodes.get(7), false);
+        Relation route = new Relation();
+        route.put("type", "route");
+        route.put("route", "bus");
+        for (Way way : Arrays.asList(w1, w2, w3, w4, w5, w6, w7)) {
+            route.addMember(new RelationMember("", way));
+        }
+
+        WayChecker wayChecker = new WayChecker(route, new PTAssistantValidatorTest());
+        wayChecker.performDirectionTest();
+        List<TestError> errors = wayChecker.getErrors();
+
+        assertEquals(2, errors.size());
+        assertEquals(new HashSet<>(Arrays.asList(w2, w3)), new HashSet<>(errors.get(0).getHighlighted()));
+        assertEquals(Collections.singleton(w6), new HashSet<>(errors.get(1).getHighlighted()));
+    }
+
+    private static Way way(Node first, Node last, boolean oneway) {
+        Way way = new Way();
+        way.setNodes(Arrays.asList(first, last));
+        way.put("highway", "residential");
+        if (oneway) {
+            way.put("oneway", "yes");
+        }
+        return way;
+    }
 }
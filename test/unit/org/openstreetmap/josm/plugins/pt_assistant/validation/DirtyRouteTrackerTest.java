@@ -0,0 +1,211 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.PTAssistantPluginPreferences;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.RouteUtils;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class DirtyRouteTrackerTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules().preferences();
+
+    @Test
+    public void testOnlyAffectedRoutesAreDirty() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        PTProperties.INCREMENTAL_VALIDATION.put(true);
+        PTProperties.PARALLEL_VALIDATION.put(false);
+
+        List<String> errors = ParallelValidationTest.validate(ds);
+        DirtyRouteTracker tracker = DirtyRouteTracker.getTracker(ds);
+        int validatedRoutes = tracker.size();
+        assertTrue(validatedRoutes > 0);
+
+        // nothing changed, so the cached results are used:
+        assertEquals(errors, ParallelValidationTest.validate(ds));
+        assertEquals(validatedRoutes, tracker.size());
+
+        Relation route = ds.getRelations().stream()
+            .filter(r -> RouteUtils.isVersionTwoPTRoute(r) && !tracker.isDirty(r))
+            .findFirst().get();
+        Way way = route.getMembers().stream()
+            .filter(m -> m.isWay() && m.getWay().getNodesCount() > 0)
+            .findFirst().get().getWay();
+        Node node = way.firstNode();
+        node.setCoor(new LatLon(node.lat() + 0.00001, node.lon()));
+
+        assertTrue(tracker.isDirty(route));
+        assertFalse(tracker.size() == validatedRoutes);
+
+        // the dirty routes are validated again:
+        ParallelValidationTest.validate(ds);
+        assertFalse(tracker.isDirty(route));
+        assertEquals(validatedRoutes, tracker.size());
+    }
+
+    @Test
+    public void testResultIsReusedForSameFingerprint() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        PTProperties.INCREMENTAL_VALIDATION.put(true);
+        PTProperties.PARALLEL_VALIDATION.put(false);
+
+        List<String> errors = ParallelValidationTest.validate(ds);
+        DirtyRouteTracker tracker = DirtyRouteTracker.getTracker(ds);
+        Relation route = ds.getRelations().stream()
+            .filter(r -> RouteUtils.isVersionTwoPTRoute(r) && !tracker.isDirty(r))
+            .findFirst().get();
+        RouteValidationResult result = tracker.getResult(route);
+        long fingerprint = RouteFingerprint.of(route);
+
+        Node node = route.getMembers().stream()
+            .filter(m -> m.isWay() && m.getWay().getNodesCount() > 0)
+            .findFirst().get().getWay().firstNode();
+        LatLon coor = node.getCoor();
+        node.setCoor(new LatLon(coor.lat() + 0.00001, coor.lon()));
+        assertFalse(fingerprint == RouteFingerprint.of(route));
+
+        // undo the change:
+        node.setCoor(coor);
+        assertTrue(tracker.isDirty(route));
+        assertEquals(fingerprint, RouteFingerprint.of(route));
+
+        assertEquals(errors, ParallelValidationTest.validate(ds));
+        assertSame(result, tracker.getResult(route));
+    }
+
+    @Test
+    public void testChangesOfNestedRelationsMakeTheRouteDirty() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 0.001));
+        Node n3 = new Node(new LatLon(0, 0.002));
+        Way w1 = new Way();
+        w1.setNodes(Arrays.asList(n1, n2));
+        Way w2 = new Way();
+        w2.setNodes(Arrays.asList(n2, n3));
+        Relation nested = new Relation();
+        nested.addMember(new RelationMember("", w1));
+        Relation route = new Relation();
+        route.put("type", "route");
+        route.put("route", "bus");
+        route.put("public_transport:version", "2");
+        route.addMember(new RelationMember("", nested));
+        for (OsmPrimitive primitive : Arrays.asList(n1, n2, n3, w1, w2, nested, route)) {
+            ds.addPrimitive(primitive);
+        }
+        DirtyRouteTracker tracker = DirtyRouteTracker.getTracker(ds);
+        RouteValidationResult result = new RouteValidationResult(
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+
+        // members of the nested relation:
+        tracker.putResult(route, 0, result, tracker.getChangeCount());
+        assertFalse(tracker.isDirty(route));
+        nested.addMember(new RelationMember("", w2));
+        assertTrue(tracker.isDirty(route));
+
+        // tags of the nested relation:
+        tracker.putResult(route, 0, result, tracker.getChangeCount());
+        nested.put("name", "nested");
+        assertTrue(tracker.isDirty(route));
+    }
+
+    @Test
+    public void testResultsAreDroppedWhenPreferencesChange() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        PTProperties.INCREMENTAL_VALIDATION.put(true);
+        PTProperties.PARALLEL_VALIDATION.put(false);
+        PTAssistantPluginPreferences.COMPARE_FROM_TAG.put(true);
+
+        ParallelValidationTest.validate(ds);
+        DirtyRouteTracker tracker = DirtyRouteTracker.getTracker(ds);
+        assertTrue(tracker.size() > 0);
+        tracker.checkPreferences();
+        assertTrue(tracker.size() > 0);
+
+        PTAssistantPluginPreferences.COMPARE_FROM_TAG.put(false);
+        tracker.checkPreferences();
+        assertEquals(0, tracker.size());
+    }
+
+    @Test
+    public void testFingerprintOfNestedRelations() {
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 0.001));
+        Way way = new Way();
+        way.setNodes(Arrays.asList(n1, n2));
+        Relation nested = new Relation();
+        nested.addMember(new RelationMember("", way));
+        Relation route = new Relation();
+        route.addMember(new RelationMember("", nested));
+        Way otherWay = new Way();
+        DataSet ds = new DataSet();
+        for (OsmPrimitive primitive : Arrays.asList(n1, n2, way, otherWay, nested, route)) {
+            ds.addPrimitive(primitive);
+        }
+
+        long fingerprint = RouteFingerprint.of(route);
+        n2.setCoor(new LatLon(0.001, 0.001));
+        assertFalse(fingerprint == RouteFingerprint.of(route));
+
+        fingerprint = RouteFingerprint.of(route);
+        nested.addMember(new RelationMember("", otherWay));
+        assertFalse(fingerprint == RouteFingerprint.of(route));
+    }
+
+    @Test
+    public void testNearbyChangesAreNotCoveredByTheFingerprint() {
+        DataSet ds = new DataSet();
+        Node n1 = new Node(new LatLon(0, 0));
+        Node n2 = new Node(new LatLon(0, 0.001));
+        Node nearby = new Node(new LatLon(0.0001, 0.0005));
+        Way way = new Way();
+        way.setNodes(Arrays.asList(n1, n2));
+        Relation route = new Relation();
+        route.put("type", "route");
+        route.put("route", "bus");
+        route.put("public_transport:version", "2");
+        route.addMember(new RelationMember("", way));
+        for (OsmPrimitive primitive : Arrays.asList(n1, n2, nearby, way, route)) {
+            ds.addPrimitive(primitive);
+        }
+        DirtyRouteTracker tracker = DirtyRouteTracker.getTracker(ds);
+        RouteValidationResult result = new RouteValidationResult(
+            Collections.emptyList(), Collections.emptyList(), Collections.emptyMap());
+        long fingerprint = RouteFingerprint.of(route);
+        tracker.putResult(route, fingerprint, result, tracker.getChangeCount());
+
+        // a node near the route, which could become a stop position:
+        nearby.put("public_transport", "stop_position");
+        assertTrue(tracker.isDirty(route));
+        assertEquals(fingerprint, RouteFingerprint.of(route));
+        assertNull(tracker.getResult(route, fingerprint));
+
+        // after the next validation the fingerprint is used again:
+        tracker.putResult(route, fingerprint, result, tracker.getChangeCount());
+        n2.setCoor(new LatLon(0, 0.002));
+        n2.setCoor(new LatLon(0, 0.001));
+        assertTrue(tracker.isDirty(route));
+        assertSame(result, tracker.getResult(route, fingerprint));
+    }
+}
@@ -0,0 +1,89 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.coor.LatLon;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTWay;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class FixVariantFinderTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    /*
+     *            n3 ------- n4
+     *           /             \
+     * n1 --- n2 ------ n5 ----- n6 --- n7
+     *           \             /
+     *            n8 ------- n9
+     */
+    private final Node n1 = new Node(new LatLon(0, 0));
+    private final Node n2 = new Node(new LatLon(0, 0.001));
+    private final Node n3 = new Node(new LatLon(0.002, 0.002));
+    private final Node n4 = new Node(new LatLon(0.002, 0.004));
+    private final Node n5 = new Node(new LatLon(0, 0.003));
+    private final Node n6 = new Node(new LatLon(0, 0.005));
+    private final Node n7 = new Node(new LatLon(0, 0.006));
+    private final Node n8 = new Node(new LatLon(-0.001, 0.002));
+    private final Node n9 = new Node(new LatLon(-0.001, 0.004));
+
+    private final PTWay start = ptway(n1, n2);
+    private final PTWay north = ptway(n2, n3, n4, n6);
+    private final PTWay middle1 = ptway(n2, n5);
+    private final PTWay middle2 = ptway(n5, n6);
+    private final PTWay south = ptway(n2, n8, n9, n6);
+    private final PTWay end = ptway(n6, n7);
+
+    private final List<PTWay> ptways = Arrays.asList(start, north, middle1, middle2, south, end);
+
+    private static PTWay ptway(Node... nodes) {
+        Way way = new Way();
+        way.setNodes(Arrays.asList(nodes));
+        return new PTWay(new RelationMember("", way));
+    }
+
+    @Test
+    public void testVariantsAreRankedByLength() {
+        List<List<PTWay>> variants = new FixVariantFinder(ptways, 5, 10_000).findVariants(start, n1, end);
+
+        assertEquals(3, variants.size());
+        assertEquals(Arrays.asList(start, middle1, middle2, end), variants.get(0));
+        assertEquals(Arrays.asList(start, south, end), variants.get(1));
+        assertEquals(Arrays.asList(start, north, end), variants.get(2));
+    }
+
+    @Test
+    public void testMaximumNumberOfVariants() {
+        List<List<PTWay>> variants = new FixVariantFinder(ptways, 2, 10_000).findVariants(start, n1, end);
+
+        assertEquals(2, variants.size());
+        assertEquals(Arrays.asList(start, middle1, middle2, end), variants.get(0));
+    }
+
+    @Test
+    public void testWrongDirection() {
+        // entered at n2, the start way leads away from the end way:
+        assertTrue(new FixVariantFinder(ptways, 5, 10_000).findVariants(start, n2, end).isEmpty());
+    }
+
+    @Test
+    public void testHasPath() {
+        FixVariantFinder finder = new FixVariantFinder(ptways, 5, 10_000);
+        assertTrue(finder.hasPath(start, n1, end));
+        assertTrue(finder.hasPath(start, n1, south));
+        // entered at n2, the start way leads away from the other ways:
+        assertFalse(finder.hasPath(start, n2, end));
+    }
+}
@@ -0,0 +1,106 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Node;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.OsmPrimitiveType;
+import org.openstreetmap.josm.data.osm.PrimitiveId;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.osm.RelationMember;
+import org.openstreetmap.josm.data.osm.Way;
+import org.openstreetmap.josm.gui.layer.OsmDataLayer;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.io.OsmTransferException;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class IncompleteMembersPrefetcherTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules();
+
+    private static final long ROUTE_ID = 4552871;
+
+    /**
+     * Copies the route of the test file into a new data set, with incomplete members
+     */
+    private static Relation incompleteRoute(DataSet ds) {
+        Relation original = (Relation) TestFiles.importOsmFile(TestFiles.ONEWAY_BAD_MEMBER_SORTING(), "testLayer")
+            .getPrimitiveById(ROUTE_ID, OsmPrimitiveType.RELATION);
+        List<RelationMember> members = new ArrayList<>();
+        for (RelationMember member : original.getMembers()) {
+            OsmPrimitive placeholder = ds.getPrimitiveById(member.getMember().getPrimitiveId());
+            if (placeholder == null) {
+                long id = member.getMember().getId();
+                placeholder = member.isNode() ? new Node(id) : member.isWay() ? new Way(id) : new Relation(id);
+                ds.addPrimitive(placeholder);
+            }
+            members.add(new RelationMember(member.getRole(), placeholder));
+        }
+        Relation route = new Relation(original.getId(), original.getVersion());
+        route.setKeys(original.getKeys());
+        route.setMembers(members);
+        ds.addPrimitive(route);
+        return route;
+    }
+
+    @Test
+    public void testMissingMembersAreDownloadedInChunks() throws InterruptedException {
+        DataSet ds = new DataSet();
+        Relation route = incompleteRoute(ds);
+        assertTrue(route.hasIncompleteMembers());
+        Set<PrimitiveId> missing = IncompleteMembersPrefetcher.collectMissingMembers(Collections.singletonList(route));
+        assertEquals(new HashSet<>(route.getMemberPrimitivesList()).size(), missing.size());
+
+        // the members are read from the test file instead of the OSM API:
+        List<List<PrimitiveId>> requests = Collections.synchronizedList(new ArrayList<>());
+        MemberDownloader fileDownloader = ids -> {
+            requests.add(new ArrayList<>(ids));
+            return TestFiles.importOsmFile(TestFiles.ONEWAY_BAD_MEMBER_SORTING(), "download");
+        };
+        OsmDataLayer layer = new OsmDataLayer(ds, "test", null);
+        int downloaded = new IncompleteMembersPrefetcher(fileDownloader, 10, 3)
+            .prefetch(layer, Collections.singletonList(route), NullProgressMonitor.INSTANCE);
+
+        assertEquals(missing.size(), downloaded);
+        assertEquals((missing.size() + 9) / 10, requests.size());
+        Set<PrimitiveId> requested = new HashSet<>();
+        for (List<PrimitiveId> request : requests) {
+            assertTrue(request.size() <= 10);
+            requested.addAll(request);
+        }
+        assertEquals(missing, requested);
+        assertFalse(route.hasIncompleteMembers());
+
+        // nothing is downloaded for complete routes:
+        assertEquals(0, new IncompleteMembersPrefetcher(fileDownloader, 10, 3)
+            .prefetch(layer, Collections.singletonList(route), NullProgressMonitor.INSTANCE));
+        assertEquals((missing.size() + 9) / 10, requests.size());
+    }
+
+    @Test
+    public void testFailedChunksStayIncomplete() throws InterruptedException {
+        DataSet ds = new DataSet();
+        Relation route = incompleteRoute(ds);
+        MemberDownloader failingDownloader = ids -> {
+            throw new OsmTransferException("offline");
+        };
+
+        assertEquals(0, new IncompleteMembersPrefetcher(failingDownloader, 10, 3)
+            .prefetch(new OsmDataLayer(ds, "test", null), Collections.singletonList(route), NullProgressMonitor.INSTANCE));
+        assertTrue(route.hasIncompleteMembers());
+    }
+}
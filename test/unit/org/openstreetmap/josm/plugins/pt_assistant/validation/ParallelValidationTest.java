@@ -0,0 +1,57 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.OsmPrimitive;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.data.validation.TestError;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class ParallelValidationTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules().preferences();
+
+    @Test
+    public void testSameErrorsAsSequential() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+
+        PTProperties.INCREMENTAL_VALIDATION.put(false);
+        PTProperties.PARALLEL_VALIDATION.put(false);
+        List<String> sequentialErrors = validate(ds);
+
+        PTProperties.PARALLEL_VALIDATION.put(true);
+        PTProperties.VALIDATION_THREADS.put(4);
+        List<String> parallelErrors = validate(ds);
+
+        assertEquals(sequentialErrors, parallelErrors);
+    }
+
+    static List<String> validate(DataSet ds) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        ds.getRelations().stream()
+            .sorted(Comparator.comparingLong(Relation::getUniqueId))
+            .forEach(test::visit);
+        test.endTest();
+        return test.getErrors().stream().map(ParallelValidationTest::describe).collect(Collectors.toList());
+    }
+
+    private static String describe(TestError error) {
+        return error.getCode() + " " + error.getMessage() + " " + error.getPrimitives().stream()
+            .map(OsmPrimitive::getUniqueId)
+            .map(String::valueOf)
+            .collect(Collectors.joining(","));
+    }
+}
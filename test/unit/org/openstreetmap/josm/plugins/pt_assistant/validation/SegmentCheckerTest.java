@@ -40,7 +40,7 @@ public class SegmentCheckerTest {
         //since 33425 storing correct segments only of continuous routes
         test.storeCorrectRouteSegments(route,
                 segmentChecker.getManager(), segmentChecker.getAssigner());
-        assertEquals(27, SegmentChecker.getCorrectSegmentCount());
+        assertEquals(27, test.getValidationContext().getCorrectSegmentCount());
         assertEquals(0, segmentChecker.getErrors().size());
     }
 }
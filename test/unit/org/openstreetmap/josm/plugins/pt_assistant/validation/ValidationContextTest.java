@@ -0,0 +1,92 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.data.osm.Relation;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.plugins.pt_assistant.data.PTRouteSegment;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class ValidationContextTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules().preferences();
+
+    @Test
+    public void testRunsDoNotShareSegments() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        PTProperties.INCREMENTAL_VALIDATION.put(false);
+
+        PTAssistantValidatorTest firstTest = validate(ds);
+        ValidationContext firstContext = firstTest.getValidationContext();
+        int correctSegmentCount = firstContext.getCorrectSegmentCount();
+        int wrongSegmentCount = firstContext.getWrongSegments().size();
+
+        PTAssistantValidatorTest secondTest = validate(ds);
+        assertNotSame(firstContext, secondTest.getValidationContext());
+        assertEquals(correctSegmentCount, secondTest.getValidationContext().getCorrectSegmentCount());
+
+        // the first run is not affected by the second one:
+        assertEquals(correctSegmentCount, firstContext.getCorrectSegmentCount());
+        assertEquals(wrongSegmentCount, firstContext.getWrongSegments().size());
+
+        // a new run of the same test starts with an empty context:
+        firstTest.startTest(NullProgressMonitor.INSTANCE);
+        assertEquals(0, firstTest.getValidationContext().getCorrectSegmentCount());
+        assertEquals(correctSegmentCount, firstContext.getCorrectSegmentCount());
+    }
+
+    @Test
+    public void testCorrectSegmentLookups() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        PTProperties.INCREMENTAL_VALIDATION.put(false);
+        ValidationContext context = validate(ds).getValidationContext();
+        List<PTRouteSegment> correctSegments = context.getCorrectSegments();
+
+        // the indexed lookups find the same segments as a scan of all correct segments:
+        for (PTRouteSegment segment : correctSegments) {
+            List<PTRouteSegment> sameEndWays = new ArrayList<>();
+            List<PTRouteSegment> sameEndStops = new ArrayList<>();
+            for (PTRouteSegment other : correctSegments) {
+                if (segment.getFirstWay().getUniqueId() == other.getFirstWay().getUniqueId()
+                        && segment.getLastWay().getUniqueId() == other.getLastWay().getUniqueId()) {
+                    sameEndWays.add(other);
+                }
+                if (segment.getFirstStop().equalsStop(other.getFirstStop())
+                        && segment.getLastStop().equalsStop(other.getLastStop())) {
+                    sameEndStops.add(other);
+                }
+            }
+            assertEquals(sameEndWays, context.getCorrectSegmentsWithSameEndWays(segment));
+            assertEquals(sameEndStops, context.getCorrectSegmentsWithSameEndStops(segment));
+        }
+
+        // segments with the same ways are only stored once:
+        int correctSegmentCount = context.getCorrectSegmentCount();
+        for (PTRouteSegment segment : correctSegments) {
+            context.addCorrectSegment(new PTRouteSegment(segment.getFirstStop(), segment.getLastStop(),
+                    segment.getPTWays(), segment.getRelation()));
+        }
+        assertEquals(correctSegmentCount, context.getCorrectSegmentCount());
+    }
+
+    private static PTAssistantValidatorTest validate(DataSet ds) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        for (Relation r : ds.getRelations()) {
+            test.visit(r);
+        }
+        test.endTest();
+        return test;
+    }
+}
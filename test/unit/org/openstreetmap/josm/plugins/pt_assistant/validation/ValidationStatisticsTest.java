@@ -0,0 +1,64 @@
+// License: GPL. For details, see LICENSE file.
+package org.openstreetmap.josm.plugins.pt_assistant.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.openstreetmap.josm.data.osm.DataSet;
+import org.openstreetmap.josm.gui.progress.NullProgressMonitor;
+import org.openstreetmap.josm.plugins.pt_assistant.TestFiles;
+import org.openstreetmap.josm.plugins.pt_assistant.utils.PTProperties;
+import org.openstreetmap.josm.testutils.JOSMTestRules;
+
+public class ValidationStatisticsTest {
+
+    @Rule
+    public JOSMTestRules rules = new JOSMTestRules().preferences();
+
+    @Test
+    public void testDisabledByDefault() {
+        PTAssistantValidatorTest test = validate(TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer"));
+        assertNull(test.getStatistics());
+    }
+
+    @Test
+    public void testStatistics() {
+        DataSet ds = TestFiles.importOsmFile(TestFiles.ROUNDABOUT(), "testLayer");
+        PTProperties.VALIDATION_STATISTICS.put(true);
+        PTProperties.INCREMENTAL_VALIDATION.put(false);
+        PTAssistantValidatorTest test = validate(ds);
+
+        ValidationStatistics statistics = test.getStatistics();
+        assertSame(statistics, ValidationStatistics.getLastRun());
+        assertEquals(19, statistics.getRouteCount());
+        assertEquals(19, statistics.getInvocationCount(ValidationStatistics.WAY_DIRECTION_TEST));
+        assertEquals(19, statistics.getInvocationCount(ValidationStatistics.SORTING_TEST));
+        assertEquals(1, statistics.getInvocationCount(ValidationStatistics.MODIFY_ERROR_MESSAGES));
+        assertTrue(statistics.getTotalNanos(ValidationStatistics.ROUTE_DATA_MANAGER) > 0);
+        // the stops are assigned by the checkers, like in a validation without statistics:
+        assertTrue(statistics.getInvocationCount(ValidationStatistics.STOP_TO_WAY_ASSIGNMENT) > 0);
+
+        List<ValidationStatistics.RouteTiming> slowestRoutes = statistics.getSlowestRoutes(5);
+        assertEquals(5, slowestRoutes.size());
+        for (int i = 1; i < slowestRoutes.size(); i++) {
+            assertTrue(slowestRoutes.get(i - 1).getNanos() >= slowestRoutes.get(i).getNanos());
+        }
+        String report = statistics.getReport(5);
+        assertTrue(report, report.contains(ValidationStatistics.SORTING_TEST));
+        assertTrue(report, report.contains("Slowest 5 of 19 routes"));
+    }
+
+    private static PTAssistantValidatorTest validate(DataSet ds) {
+        PTAssistantValidatorTest test = new PTAssistantValidatorTest();
+        test.startTest(NullProgressMonitor.INSTANCE);
+        test.visit(ds.allPrimitives());
+        test.endTest();
+        return test;
+    }
+}